@@ -0,0 +1,36 @@
+package com.pdfprinting.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with allocation and peak-heap profiling and writes JSON results.
+ * Any standard JMH option can be passed, e.g. {@code -p corpus=MANY_TINY} or {@code -rff out.json}.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+            .parent(commandLine)
+            .addProfiler(GCProfiler.class)
+            .addProfiler(PeakHeapProfiler.class);
+        
+        // Fill in defaults only where the command line left them open
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(PdfMergeBenchmark.class.getSimpleName());
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            builder.result("jmh-result.json");
+        }
+        
+        new Runner(builder.build()).run();
+    }
+}
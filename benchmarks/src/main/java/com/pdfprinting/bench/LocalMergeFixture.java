@@ -0,0 +1,155 @@
+package com.pdfprinting.bench;
+
+import com.pdfprinting.model.MergedArtifact;
+import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.model.StoredFile;
+import com.pdfprinting.repository.MergedArtifactRepository;
+import com.pdfprinting.service.DashboardEventService;
+import com.pdfprinting.service.GitHubStorageService;
+import com.pdfprinting.service.MemoryGovernor;
+import com.pdfprinting.service.PdfMergeService;
+import com.pdfprinting.service.PdfUploadService;
+import com.pdfprinting.service.StorageCircuitBreaker;
+import com.pdfprinting.service.StorageShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Wires a real {@link PdfMergeService} to a local directory instead of GitHub,
+ * so benchmarks measure merging and not the network. The real services are built by a
+ * small Spring context, so a dependency added to them fails here at startup instead of
+ * leaving a field null; only storage, the database and the dashboard are stand-ins.
+ */
+public final class LocalMergeFixture {
+
+    public static final String BATCH = "Benchmark Batch";
+
+    private LocalMergeFixture() {}
+
+    public static PdfMergeService create(Path storageDirectory, List<String> fileNames) throws Exception {
+        List<PdfUpload> uploads = new ArrayList<>();
+        for (String fileName : fileNames) {
+            PdfUpload upload = new PdfUpload(fileName, fileName, fileName, BATCH,
+                                             Files.size(storageDirectory.resolve(fileName)), null);
+            uploads.add(upload);
+        }
+        
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+            "github.repository", "local",
+            // A budget far above any fixture, so the benchmark never waits for memory
+            "app.memory.in-flight-mb", String.valueOf(64 * 1024),
+            "app.merge.output-dir", storageDirectory.resolve("merged").toString()
+        )));
+        
+        // Stand-ins are registered as finished objects, without any injection of their own
+        ConfigurableListableBeanFactory beanFactory = context.getBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", new SimpleMeterRegistry());
+        beanFactory.registerSingleton("pdfUploadService", new FixedBatchUploadService(uploads));
+        beanFactory.registerSingleton("gitHubStorageService", new LocalStorageService(storageDirectory));
+        beanFactory.registerSingleton("mergedArtifactRepository", noMergedArtifacts());
+        beanFactory.registerSingleton("dashboardEventService", new NoDashboardEvents());
+        beanFactory.registerSingleton("transactionTemplate", new TransactionTemplate(new NoTransactionManager()));
+        
+        context.register(MemoryGovernor.class, StorageCircuitBreaker.class, StorageShardRouter.class, PdfMergeService.class);
+        context.refresh();
+        return context.getBean(PdfMergeService.class);
+    }
+
+    /** A repository that keeps nothing: every merge is the first one of its batch. */
+    private static MergedArtifactRepository noMergedArtifacts() {
+        return (MergedArtifactRepository) Proxy.newProxyInstance(MergedArtifactRepository.class.getClassLoader(),
+            new Class<?>[] { MergedArtifactRepository.class }, (proxy, method, args) -> switch (method.getName()) {
+                case "findById" -> Optional.<MergedArtifact>empty();
+                case "save" -> args[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    /** There is no database, so transactions have nothing to commit. */
+    static class NoTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+
+    /** Serves downloads by copying from a local directory, keyed by storage path. */
+    static class LocalStorageService extends GitHubStorageService {
+        private final Path root;
+
+        LocalStorageService(Path root) {
+            this.root = root;
+        }
+
+        @Override
+        public void downloadToFile(String shard, String path, String sha, Path target) throws Exception {
+            Files.copy(root.resolve(path), target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        @Override
+        public byte[] downloadFile(String shard, String path, String sha) throws Exception {
+            return Files.readAllBytes(root.resolve(path));
+        }
+
+        @Override
+        public StoredFile storeMergedPart(String shard, byte[] content, String batch, String filename) throws Exception {
+            Path target = Files.createDirectories(root.resolve("merged-parts")).resolve(filename);
+            Files.write(target, content);
+            return new StoredFile(shard, root.relativize(target).toString(), "0".repeat(40), content.length);
+        }
+
+        @Override
+        public void deleteFiles(String shard, Collection<String> paths) throws Exception {
+            for (String path : paths) {
+                Files.deleteIfExists(root.resolve(path));
+            }
+        }
+    }
+
+    /** There is no database to record merge progress in. */
+    static class NoDashboardEvents extends DashboardEventService {
+        @Override
+        public void mergeProgress(String batch, int processed, int total) {
+        }
+    }
+
+    /** Returns the same pending uploads for every batch lookup. */
+    static class FixedBatchUploadService extends PdfUploadService {
+        private final List<PdfUpload> uploads;
+
+        FixedBatchUploadService(List<PdfUpload> uploads) {
+            this.uploads = uploads;
+        }
+
+        @Override
+        public List<PdfUpload> getBatchUploads(String batch) {
+            return uploads;
+        }
+    }
+}
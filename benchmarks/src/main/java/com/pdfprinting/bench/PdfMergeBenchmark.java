@@ -0,0 +1,81 @@
+package com.pdfprinting.bench;
+
+import com.pdfprinting.service.MergedPdf;
+import com.pdfprinting.service.PdfMergeService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Merge time per batch for each synthetic corpus. Run with the GC profiler for
+ * allocation rate and {@link PeakHeapProfiler} for peak heap; see {@link BenchmarkRunner}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class PdfMergeBenchmark {
+
+    @Param({"TEXT_SMALL", "IMAGE_HEAVY", "SHARED_FONT", "MANY_TINY"})
+    public SyntheticPdfs.Corpus corpus;
+
+    private Path storageDirectory;
+    private PdfMergeService pdfMergeService;
+
+    /** Pages and bytes merged, reported by JMH as rates next to the time per merge. */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Throughput {
+        public long pages;
+        public long outputBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            pages = 0;
+            outputBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        storageDirectory = Files.createTempDirectory("merge-bench-");
+        List<String> fileNames = SyntheticPdfs.generate(corpus, storageDirectory);
+        pdfMergeService = LocalMergeFixture.create(storageDirectory, fileNames);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(storageDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public MergedPdf mergeBatch(Throughput throughput) throws Exception {
+        MergedPdf merged = pdfMergeService.mergeBatchPdfs(LocalMergeFixture.BATCH);
+        throughput.pages += (long) corpus.getFiles() * corpus.getPagesPerFile();
+        throughput.outputBytes += merged.getSize();
+        return merged;
+    }
+}
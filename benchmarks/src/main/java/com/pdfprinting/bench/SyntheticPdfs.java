@@ -0,0 +1,137 @@
+package com.pdfprinting.bench;
+
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.AreaBreak;
+import com.itextpdf.layout.element.Image;
+import com.itextpdf.layout.element.Paragraph;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the benchmark corpora in-process, so runs are reproducible without checked-in fixtures.
+ * A fixed seed keeps the generated bytes identical between runs and commits.
+ */
+public final class SyntheticPdfs {
+
+    public enum Corpus {
+        /** 50 short text-only files of 3 pages. */
+        TEXT_SMALL(50, 3),
+        /** 20 files of 2 pages, each page a scanner-like grayscale image. */
+        IMAGE_HEAVY(20, 2),
+        /** 100 files that all embed a subset of the same TrueType font, as word processors export them. */
+        SHARED_FONT(100, 2),
+        /** 500 single-page files, the typical deadline-day pile of small uploads. */
+        MANY_TINY(500, 1);
+
+        private final int files;
+        private final int pagesPerFile;
+
+        Corpus(int files, int pagesPerFile) {
+            this.files = files;
+            this.pagesPerFile = pagesPerFile;
+        }
+
+        public int getFiles() { return files; }
+        public int getPagesPerFile() { return pagesPerFile; }
+    }
+
+    private static final int IMAGE_WIDTH = 850;
+    private static final int IMAGE_HEIGHT = 1100;
+    // Shipped in the PDFBox jar; the standard 14 fonts would not be embedded at all
+    private static final String SHARED_FONT = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    private static byte[] sharedFont;
+
+    private SyntheticPdfs() {}
+
+    /**
+     * Writes the corpus into {@code directory} and returns the file names in merge order.
+     */
+    public static List<String> generate(Corpus corpus, Path directory) throws IOException {
+        Random random = new Random(42);
+        List<String> fileNames = new ArrayList<>();
+        
+        for (int i = 0; i < corpus.getFiles(); i++) {
+            String fileName = corpus.name().toLowerCase() + "-" + i + ".pdf";
+            Path file = directory.resolve(fileName);
+            
+            try (PdfDocument pdfDocument = new PdfDocument(new PdfWriter(Files.newOutputStream(file)));
+                 Document document = new Document(pdfDocument)) {
+                // A font object belongs to one document, so each file embeds its own subset
+                PdfFont font = corpus == Corpus.SHARED_FONT
+                    ? PdfFontFactory.createFont(sharedFont(), PdfEncodings.WINANSI, PdfFontFactory.EmbeddingStrategy.FORCE_EMBEDDED)
+                    : null;
+                for (int page = 0; page < corpus.getPagesPerFile(); page++) {
+                    if (page > 0) {
+                        document.add(new AreaBreak());
+                    }
+                    writePage(corpus, document, font, random, i, page);
+                }
+            }
+            fileNames.add(fileName);
+        }
+        return fileNames;
+    }
+
+    private static void writePage(Corpus corpus, Document document, PdfFont font, Random random,
+                                  int file, int page) throws IOException {
+        switch (corpus) {
+            case IMAGE_HEAVY -> {
+                // Noisy grayscale pixels compress poorly, like real scans
+                byte[] pixels = new byte[IMAGE_WIDTH * IMAGE_HEIGHT];
+                random.nextBytes(pixels);
+                ImageData imageData = ImageDataFactory.create(IMAGE_WIDTH, IMAGE_HEIGHT, 1, 8, pixels, null);
+                document.add(new Image(imageData).setAutoScale(true));
+            }
+            case SHARED_FONT -> {
+                for (int paragraph = 0; paragraph < 3; paragraph++) {
+                    document.add(new Paragraph(text(random, 80)).setFont(font));
+                }
+            }
+            case MANY_TINY -> document.add(new Paragraph("Assignment " + file + ", page " + (page + 1)));
+            default -> {
+                document.add(new Paragraph("Assignment " + file + ", page " + (page + 1)));
+                for (int paragraph = 0; paragraph < 12; paragraph++) {
+                    document.add(new Paragraph(text(random, 60)));
+                }
+            }
+        }
+    }
+
+    private static synchronized byte[] sharedFont() throws IOException {
+        if (sharedFont == null) {
+            try (InputStream in = SyntheticPdfs.class.getResourceAsStream(SHARED_FONT)) {
+                if (in == null) {
+                    throw new IOException("TrueType font " + SHARED_FONT + " is not on the classpath");
+                }
+                sharedFont = in.readAllBytes();
+            }
+        }
+        return sharedFont;
+    }
+
+    private static String text(Random random, int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            int length = 2 + random.nextInt(8);
+            for (int c = 0; c < length; c++) {
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+            builder.append(' ');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,473 @@
+package com.pdfprinting.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory stand-in for the parts of the GitHub REST API the application uses:
+ * repositories, the Contents API, raw blobs, and the Git Data API (refs, trees, commits).
+ * Every request can be delayed, failed at random, and counted against a rate limit,
+ * so the application's retry and back-off paths run the way they would against GitHub.
+ */
+public class FakeGitHubServer {
+
+    private static final Pattern REPO = Pattern.compile("^/repos/([^/]+)/([^/]+)(/.*)?$");
+    private static final String BRANCH = "main";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Settings settings;
+    private final Map<String, FakeRepository> repositories = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    private final Object rateLock = new Object();
+    private long windowStart = System.currentTimeMillis();
+    private int windowRequests;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public static class Settings {
+        public long latencyMs = 150;
+        public long jitterMs = 100;
+        public double errorRate = 0.0;
+        public int rateLimit = 5000;
+        public long rateWindowSeconds = 3600;
+    }
+
+    public FakeGitHubServer(Settings settings) {
+        this.settings = settings;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-github");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getRequests() { return requests.get(); }
+    public long getInjectedErrors() { return injectedErrors.get(); }
+    public long getRateLimited() { return rateLimited.get(); }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            sleep(settings.latencyMs + (settings.jitterMs > 0 ? ThreadLocalRandom.current().nextLong(settings.jitterMs) : 0));
+            
+            if (!takeRateLimitToken(exchange)) {
+                rateLimited.incrementAndGet();
+                sendJson(exchange, 403, message("API rate limit exceeded"));
+                return;
+            }
+            if (ThreadLocalRandom.current().nextDouble() < settings.errorRate) {
+                injectedErrors.incrementAndGet();
+                sendJson(exchange, 502, message("Server Error"));
+                return;
+            }
+            
+            route(exchange);
+            
+        } catch (Exception e) {
+            sendJson(exchange, 500, message(e.getMessage()));
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        
+        if (path.equals("/rate_limit")) {
+            sendJson(exchange, 200, objectMapper.createObjectNode());
+            return;
+        }
+        if (path.startsWith("/users/")) {
+            ObjectNode user = objectMapper.createObjectNode();
+            user.put("login", path.substring("/users/".length()));
+            user.put("type", "User");
+            sendJson(exchange, 200, user);
+            return;
+        }
+        
+        Matcher matcher = REPO.matcher(path);
+        if (!matcher.matches()) {
+            sendJson(exchange, 404, message("Not Found"));
+            return;
+        }
+        
+        FakeRepository repository = repositories.computeIfAbsent(matcher.group(1) + "/" + matcher.group(2),
+            name -> new FakeRepository(matcher.group(1), matcher.group(2)));
+        String rest = matcher.group(3) == null ? "" : matcher.group(3);
+        
+        synchronized (repository) {
+            if (rest.isEmpty() && method.equals("GET")) {
+                sendJson(exchange, 200, repository.describe());
+            } else if (rest.startsWith("/contents/") && method.equals("GET")) {
+                getContents(exchange, repository, rest.substring("/contents/".length()));
+            } else if (rest.startsWith("/contents/") && method.equals("PUT")) {
+                putContents(exchange, repository, rest.substring("/contents/".length()));
+            } else if (rest.startsWith("/git/blobs/") && method.equals("GET")) {
+                getBlob(exchange, rest.substring("/git/blobs/".length()));
+            } else if (rest.matches("/git/refs?/heads/.+") && method.equals("GET")) {
+                sendJson(exchange, 200, repository.ref());
+            } else if (rest.matches("/git/refs?/heads/.+") && method.equals("PATCH")) {
+                patchRef(exchange, repository);
+            } else if (rest.startsWith("/commits/") && method.equals("GET")) {
+                getCommit(exchange, repository, rest.substring("/commits/".length()));
+            } else if (rest.startsWith("/git/trees/") && method.equals("GET")) {
+                getTree(exchange, repository, rest.substring("/git/trees/".length()));
+            } else if (rest.equals("/git/trees") && method.equals("POST")) {
+                postTree(exchange, repository);
+            } else if (rest.equals("/git/commits") && method.equals("POST")) {
+                postCommit(exchange, repository);
+            } else {
+                sendJson(exchange, 404, message("Not Found"));
+            }
+        }
+    }
+
+    private void getContents(HttpExchange exchange, FakeRepository repository, String path) throws IOException {
+        String sha = repository.files.get(path);
+        if (sha != null) {
+            ObjectNode content = fileNode(path, sha);
+            content.put("encoding", "base64");
+            content.put("content", Base64.getEncoder().encodeToString(blobs.get(sha)));
+            sendJson(exchange, 200, content);
+            return;
+        }
+        
+        String prefix = path.endsWith("/") ? path : path + "/";
+        ArrayNode entries = objectMapper.createArrayNode();
+        repository.files.forEach((filePath, fileSha) -> {
+            if (filePath.startsWith(prefix) && filePath.indexOf('/', prefix.length()) < 0) {
+                entries.add(fileNode(filePath, fileSha));
+            }
+        });
+        
+        if (entries.isEmpty()) {
+            sendJson(exchange, 404, message("Not Found"));
+        } else {
+            sendJson(exchange, 200, entries);
+        }
+    }
+
+    private void putContents(HttpExchange exchange, FakeRepository repository, String path) throws IOException {
+        JsonNode body = readBody(exchange);
+        String existingSha = repository.files.get(path);
+        String suppliedSha = body.path("sha").asText(null);
+        
+        if (existingSha != null && suppliedSha == null) {
+            sendJson(exchange, 422, message("Invalid request.\n\n\"sha\" wasn't supplied."));
+            return;
+        }
+        if (suppliedSha != null && !suppliedSha.equals(existingSha)) {
+            sendJson(exchange, 409, message(path + " does not match " + suppliedSha));
+            return;
+        }
+        
+        byte[] content = Base64.getMimeDecoder().decode(body.path("content").asText(""));
+        String sha = storeBlob(content);
+        
+        Map<String, String> files = new HashMap<>(repository.files);
+        files.put(path, sha);
+        String commitSha = repository.commit(files, repository.head);
+        repository.moveHead(commitSha);
+        
+        ObjectNode response = objectMapper.createObjectNode();
+        response.set("content", fileNode(path, sha));
+        response.putObject("commit").put("sha", commitSha);
+        sendJson(exchange, existingSha == null ? 201 : 200, response);
+    }
+
+    private void getBlob(HttpExchange exchange, String sha) throws IOException {
+        byte[] content = blobs.get(sha);
+        if (content == null) {
+            sendJson(exchange, 404, message("Not Found"));
+            return;
+        }
+        
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        if (accept != null && accept.contains("raw")) {
+            exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+            exchange.sendResponseHeaders(200, content.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+            return;
+        }
+        
+        ObjectNode blob = objectMapper.createObjectNode();
+        blob.put("sha", sha);
+        blob.put("size", content.length);
+        blob.put("encoding", "base64");
+        blob.put("content", Base64.getEncoder().encodeToString(content));
+        sendJson(exchange, 200, blob);
+    }
+
+    private void patchRef(HttpExchange exchange, FakeRepository repository) throws IOException {
+        JsonNode body = readBody(exchange);
+        String commitSha = body.path("sha").asText();
+        boolean force = body.path("force").asBoolean(false);
+        
+        if (!repository.commitTrees.containsKey(commitSha)) {
+            sendJson(exchange, 422, message("Object does not exist"));
+            return;
+        }
+        if (!force && !repository.head.equals(repository.commitParents.get(commitSha))) {
+            sendJson(exchange, 422, message("Update is not a fast forward"));
+            return;
+        }
+        
+        repository.moveHead(commitSha);
+        sendJson(exchange, 200, repository.ref());
+    }
+
+    private void getCommit(HttpExchange exchange, FakeRepository repository, String sha) throws IOException {
+        String treeSha = repository.commitTrees.get(sha);
+        if (treeSha == null) {
+            sendJson(exchange, 404, message("Not Found"));
+            return;
+        }
+        
+        ObjectNode commit = objectMapper.createObjectNode();
+        commit.put("sha", sha);
+        commit.putObject("commit").putObject("tree").put("sha", treeSha);
+        String parent = repository.commitParents.get(sha);
+        ArrayNode parents = commit.putArray("parents");
+        if (parent != null) {
+            parents.addObject().put("sha", parent);
+        }
+        sendJson(exchange, 200, commit);
+    }
+
+    private void getTree(HttpExchange exchange, FakeRepository repository, String sha) throws IOException {
+        Map<String, String> tree = repository.trees.get(sha);
+        if (tree == null) {
+            sendJson(exchange, 404, message("Not Found"));
+            return;
+        }
+        sendJson(exchange, 200, treeNode(sha, tree));
+    }
+
+    private void postTree(HttpExchange exchange, FakeRepository repository) throws IOException {
+        JsonNode body = readBody(exchange);
+        String baseTree = body.path("base_tree").asText(null);
+        Map<String, String> files = new HashMap<>(baseTree != null 
+            ? repository.trees.getOrDefault(baseTree, Map.of()) : Map.of());
+        
+        for (JsonNode entry : body.path("tree")) {
+            String path = entry.path("path").asText();
+            if (entry.hasNonNull("content")) {
+                files.put(path, storeBlob(entry.path("content").asText().getBytes(StandardCharsets.UTF_8)));
+            } else if (entry.hasNonNull("sha")) {
+                files.put(path, entry.path("sha").asText());
+            } else {
+                files.remove(path);
+            }
+        }
+        
+        String treeSha = randomSha();
+        repository.trees.put(treeSha, files);
+        sendJson(exchange, 201, treeNode(treeSha, files));
+    }
+
+    private void postCommit(HttpExchange exchange, FakeRepository repository) throws IOException {
+        JsonNode body = readBody(exchange);
+        String treeSha = body.path("tree").asText();
+        String parent = body.path("parents").path(0).asText(null);
+        
+        if (!repository.trees.containsKey(treeSha)) {
+            sendJson(exchange, 422, message("Tree SHA does not exist"));
+            return;
+        }
+        
+        String commitSha = randomSha();
+        repository.commitTrees.put(commitSha, treeSha);
+        repository.commitParents.put(commitSha, parent);
+        
+        ObjectNode commit = objectMapper.createObjectNode();
+        commit.put("sha", commitSha);
+        commit.putObject("tree").put("sha", treeSha);
+        sendJson(exchange, 201, commit);
+    }
+
+    private boolean takeRateLimitToken(HttpExchange exchange) {
+        synchronized (rateLock) {
+            long now = System.currentTimeMillis();
+            long windowMs = settings.rateWindowSeconds * 1000;
+            if (now - windowStart >= windowMs) {
+                windowStart = now;
+                windowRequests = 0;
+            }
+            
+            boolean allowed = windowRequests < settings.rateLimit;
+            if (allowed) {
+                windowRequests++;
+            }
+            
+            exchange.getResponseHeaders().set("X-RateLimit-Limit", String.valueOf(settings.rateLimit));
+            exchange.getResponseHeaders().set("X-RateLimit-Remaining", String.valueOf(settings.rateLimit - windowRequests));
+            exchange.getResponseHeaders().set("X-RateLimit-Reset", String.valueOf((windowStart + windowMs) / 1000));
+            return allowed;
+        }
+    }
+
+    private String storeBlob(byte[] content) {
+        String sha = gitBlobSha(content);
+        blobs.put(sha, content);
+        return sha;
+    }
+
+    private static String gitBlobSha(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(("blob " + content.length + "\0").getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String randomSha() {
+        return (UUID.randomUUID().toString() + UUID.randomUUID()).replace("-", "").substring(0, 40);
+    }
+
+    private ObjectNode fileNode(String path, String sha) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("type", "file");
+        node.put("name", path.substring(path.lastIndexOf('/') + 1));
+        node.put("path", path);
+        node.put("sha", sha);
+        node.put("size", blobs.get(sha).length);
+        return node;
+    }
+
+    private ObjectNode treeNode(String sha, Map<String, String> files) {
+        ObjectNode tree = objectMapper.createObjectNode();
+        tree.put("sha", sha);
+        tree.put("truncated", false);
+        ArrayNode entries = tree.putArray("tree");
+        files.forEach((path, blobSha) -> entries.addObject()
+            .put("path", path).put("mode", "100644").put("type", "blob").put("sha", blobSha));
+        return tree;
+    }
+
+    private ObjectNode message(String text) {
+        return objectMapper.createObjectNode().put("message", text);
+    }
+
+    private JsonNode readBody(HttpExchange exchange) throws IOException {
+        return objectMapper.readTree(exchange.getRequestBody());
+    }
+
+    private void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** One repository: the files at the head commit plus every tree and commit ever created. */
+    private class FakeRepository {
+        private final String owner;
+        private final String name;
+        private final Map<String, Map<String, String>> trees = new HashMap<>();
+        private final Map<String, String> commitTrees = new HashMap<>();
+        private final Map<String, String> commitParents = new HashMap<>();
+        private Map<String, String> files = new HashMap<>();
+        private String head;
+
+        FakeRepository(String owner, String name) {
+            this.owner = owner;
+            this.name = name;
+            this.head = commit(Map.of(), null);
+        }
+
+        String commit(Map<String, String> snapshot, String parent) {
+            String treeSha = randomSha();
+            trees.put(treeSha, new HashMap<>(snapshot));
+            String commitSha = randomSha();
+            commitTrees.put(commitSha, treeSha);
+            commitParents.put(commitSha, parent);
+            return commitSha;
+        }
+
+        void moveHead(String commitSha) {
+            head = commitSha;
+            files = new HashMap<>(trees.get(commitTrees.get(commitSha)));
+        }
+
+        ObjectNode describe() {
+            long bytes = files.values().stream().mapToLong(sha -> blobs.get(sha).length).sum();
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("id", Math.abs((owner + "/" + name).hashCode()));
+            node.put("name", name);
+            node.put("full_name", owner + "/" + name);
+            node.putObject("owner").put("login", owner);
+            node.put("private", true);
+            node.put("size", bytes / 1024);
+            node.put("default_branch", BRANCH);
+            return node;
+        }
+
+        ObjectNode ref() {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("ref", "refs/heads/" + BRANCH);
+            node.put("url", getUrl() + "/repos/" + owner + "/" + name + "/git/refs/heads/" + BRANCH);
+            ObjectNode object = node.putObject("object");
+            object.put("type", "commit");
+            object.put("sha", head);
+            return node;
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.pdfprinting.load;
+
+import com.pdfprinting.PdfPrintingApplication;
+import com.pdfprinting.bench.SyntheticPdfs;
+import com.pdfprinting.model.User;
+import com.pdfprinting.repository.UserRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the application against {@link FakeGitHubServer} and drives it over HTTP the way
+ * students and an admin would on deadline day: register, verify, log in, then upload and
+ * check the dashboard in a loop while the admin merges batches. Prints p50/p99 latency,
+ * throughput and error rate per endpoint when the run ends.
+ */
+public class LoadTestHarness {
+
+    private static final String[] BATCHES = { "Batch 1", "Batch 2", "Batch 3", "Batch 4", "Batch 5" };
+    private static final String ADMIN_EMAIL = "admin@load.test";
+    private static final String ADMIN_PASSWORD = "admin-load-test";
+    private static final Pattern QUEUED_JOB = Pattern.compile("queued \\(job (\\d+)\\)");
+    private static final Pattern JOB_STATUS = Pattern.compile("\"id\":(\\d+),.*?\"status\":\"([A-Z]+)\"");
+
+    private final Options options;
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private final List<byte[]> pdfs = new ArrayList<>();
+
+    private String baseUrl;
+    private UserRepository userRepository;
+    private volatile long deadline;
+
+    public static void main(String[] args) throws Exception {
+        new LoadTestHarness(Options.parse(args)).run();
+    }
+
+    public LoadTestHarness(Options options) {
+        this.options = options;
+    }
+
+    public void run() throws Exception {
+        FakeGitHubServer.Settings settings = new FakeGitHubServer.Settings();
+        settings.latencyMs = options.latencyMs;
+        settings.jitterMs = options.jitterMs;
+        settings.errorRate = options.errorRate;
+        settings.rateLimit = options.rateLimit;
+        settings.rateWindowSeconds = options.rateWindowSeconds;
+        FakeGitHubServer gitHub = new FakeGitHubServer(settings);
+        gitHub.start();
+
+        Path corpus = Files.createTempDirectory("load-pdfs");
+        for (String fileName : SyntheticPdfs.generate(SyntheticPdfs.Corpus.TEXT_SMALL, corpus)) {
+            pdfs.add(Files.readAllBytes(corpus.resolve(fileName)));
+        }
+
+        ConfigurableApplicationContext context = startApplication(gitHub.getUrl());
+        baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+        userRepository = context.getBean(UserRepository.class);
+
+        System.out.printf("Application at %s, fake GitHub at %s%n", baseUrl, gitHub.getUrl());
+        System.out.printf("Running %d students for %ds%n", options.users, options.durationSeconds);
+
+        ExecutorService executor = Executors.newFixedThreadPool(options.users + 1);
+        long started = System.nanoTime();
+        deadline = started + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        for (int i = 0; i < options.users; i++) {
+            int student = i;
+            executor.submit(() -> runStudent(student));
+        }
+        executor.submit(this::runAdmin);
+
+        executor.shutdown();
+        executor.awaitTermination(options.durationSeconds + 300L, TimeUnit.SECONDS);
+        executor.shutdownNow();
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+
+        report(elapsedSeconds, gitHub);
+
+        context.close();
+        gitHub.stop();
+    }
+
+    private ConfigurableApplicationContext startApplication(String gitHubUrl) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        // Schema comes from the Flyway migrations, checked against the hot queries before the run
+        properties.put("spring.jpa.hibernate.ddl-auto", "validate");
+        properties.put("spring.session.jdbc.initialize-schema", "never");
+        properties.put("app.schema.verify-indexes", "true");
+        properties.put("spring.servlet.multipart.max-file-size", "20MB");
+        properties.put("spring.servlet.multipart.max-request-size", "100MB");
+        properties.put("github.token", "load-test");
+        properties.put("github.api-url", gitHubUrl);
+        properties.put("github.repository", "load/uploads-1");
+        properties.put("github.repositories", IntStream.rangeClosed(1, options.shards)
+            .mapToObj(shard -> "load/uploads-" + shard).collect(Collectors.joining(",")));
+        properties.put("admin.email", ADMIN_EMAIL);
+        properties.put("admin.password", ADMIN_PASSWORD);
+        properties.put("app.base-url", "http://localhost");
+        // Nothing listens on port 1, so verification mails fail fast on the mail executor
+        properties.put("spring.mail.host", "127.0.0.1");
+        properties.put("spring.mail.port", "1");
+        properties.put("spring.mail.username", "noreply@load.test");
+        properties.put("logging.level.com.pdfprinting", "WARN");
+        // Simulated students upload far faster than real ones; measure the server, not the per-student limits
+        properties.put("app.upload.rate.requests-per-minute", "0");
+        properties.put("app.upload.rate.bytes-per-hour", "0");
+        properties.put("app.upload.max-pending-per-batch", "0");
+
+        return new SpringApplicationBuilder(PdfPrintingApplication.class)
+            .properties(properties)
+            .run();
+    }
+
+    private void runStudent(int student) {
+        Random random = new Random(student);
+        HttpClient client = newClient();
+        String email = "student" + student + "-" + UUID.randomUUID().toString().substring(0, 8) + "@load.test";
+        String password = "password" + student;
+        String batch = BATCHES[student % BATCHES.length];
+
+        try {
+            // Spread sign-ups over the ramp-up period instead of all at once
+            Thread.sleep(options.rampUpSeconds * 1000L * student / Math.max(1, options.users));
+
+            Map<String, String> registration = new LinkedHashMap<>();
+            registration.put("name", "Load Student " + student);
+            registration.put("email", email);
+            registration.put("branch", "CSE");
+            registration.put("rollNumber", "LOAD" + email.hashCode());
+            registration.put("phoneNumber", "9000000000");
+            registration.put("batch", batch);
+            registration.put("password", password);
+            HttpResponse<String> registered = timed("register", client, form("/register", registration));
+            if (registered == null) {
+                return;
+            }
+            if (!redirectsTo(registered, "/login")) {
+                stats("register").error();
+                return;
+            }
+
+            User user = userRepository.findByEmail(email).orElse(null);
+            if (user == null) {
+                return;
+            }
+            timed("verify_email", client, get("/verify-email?token=" + user.getVerificationToken()));
+            if (!login(client, email, password)) {
+                return;
+            }
+
+            while (System.nanoTime() < deadline) {
+                HttpResponse<String> uploaded = timed("upload", client, upload(batch, random));
+                if (uploaded != null && redirectsTo(uploaded, "/student/dashboard")) {
+                    // The outcome of the upload is the flash message on the page it redirects to
+                    HttpResponse<String> dashboard = timed("dashboard", client, get("/student/dashboard"));
+                    if (dashboard != null && dashboard.body().contains("alert-danger")) {
+                        stats("upload").error();
+                    }
+                } else if (uploaded != null) {
+                    stats("upload").error();
+                }
+                Thread.sleep(options.thinkTimeMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runAdmin() {
+        HttpClient client = newClient();
+        try {
+            Thread.sleep(options.mergeIntervalSeconds * 1000L);
+            if (!login(client, ADMIN_EMAIL, ADMIN_PASSWORD)) {
+                return;
+            }
+
+            while (System.nanoTime() < deadline) {
+                for (String batch : BATCHES) {
+                    String path = "/admin/merge/" + URLEncoder.encode(batch, StandardCharsets.UTF_8).replace("+", "%20");
+                    long started = System.nanoTime();
+                    HttpResponse<String> merged = send(client, post(path, HttpRequest.BodyPublishers.noBody(), null));
+                    long elapsed = System.nanoTime() - started;
+                    if (merged == null) {
+                        stats("merge").unanswered();
+                        continue;
+                    }
+                    HttpResponse<String> dashboard = send(client, get("/admin/dashboard"));
+                    String body = dashboard != null ? dashboard.body() : "";
+                    // Merging an empty batch is not a request we want in the numbers
+                    if (body.contains("No pending uploads found")) {
+                        continue;
+                    }
+                    Matcher queued = QUEUED_JOB.matcher(body);
+                    if (merged.statusCode() >= 400 || !queued.find()) {
+                        stats("merge").record(elapsed, true);
+                        continue;
+                    }
+                    // Merges run on a worker; measure until the job has finished
+                    String outcome = awaitMergeJob(client, path + "/status", Long.parseLong(queued.group(1)));
+                    stats("merge").record(System.nanoTime() - started, !"COMPLETED".equals(outcome));
+                }
+                Thread.sleep(options.mergeIntervalSeconds * 1000L);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String awaitMergeJob(HttpClient client, String statusPath, long jobId) throws InterruptedException {
+        while (System.nanoTime() < deadline + TimeUnit.SECONDS.toNanos(options.requestTimeoutSeconds)) {
+            HttpResponse<String> response = send(client, get(statusPath));
+            if (response != null && response.statusCode() == 200) {
+                Matcher status = JOB_STATUS.matcher(response.body());
+                if (status.find() && Long.parseLong(status.group(1)) == jobId &&
+                    (status.group(2).equals("COMPLETED") || status.group(2).equals("FAILED"))) {
+                    return status.group(2);
+                }
+            }
+            Thread.sleep(200);
+        }
+        return "TIMEOUT";
+    }
+
+    private boolean login(HttpClient client, String email, String password) {
+        HttpResponse<String> response = timed("login", client, form("/login", Map.of("username", email, "password", password)));
+        if (response != null && redirectsTo(response, "/login?error")) {
+            stats("login").error();
+            return false;
+        }
+        return response != null;
+    }
+
+    private HttpResponse<String> timed(String endpoint, HttpClient client, HttpRequest request) {
+        long started = System.nanoTime();
+        HttpResponse<String> response = send(client, request);
+        EndpointStats endpointStats = stats(endpoint);
+        if (response == null) {
+            endpointStats.unanswered();
+        } else {
+            endpointStats.record(System.nanoTime() - started, response.statusCode() >= 400);
+        }
+        return response;
+    }
+
+    private HttpResponse<String> send(HttpClient client, HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private HttpRequest upload(String batch, Random random) {
+        String boundary = "----load" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writePart(body, boundary, "Content-Disposition: form-data; name=\"batch\"", batch.getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < options.filesPerUpload; i++) {
+            int index = random.nextInt(pdfs.size());
+            writePart(body, boundary, "Content-Disposition: form-data; name=\"files\"; filename=\"load-" + index + ".pdf\"\r\n" +
+                                      "Content-Type: application/pdf", pdfs.get(index));
+        }
+        body.writeBytes(("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return post("/student/upload", HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()),
+                    "multipart/form-data; boundary=" + boundary);
+    }
+
+    private static void writePart(ByteArrayOutputStream body, String boundary, String headers, byte[] content) {
+        body.writeBytes(("--" + boundary + "\r\n" + headers + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private HttpRequest form(String path, Map<String, String> fields) {
+        String body = fields.entrySet().stream()
+            .map(field -> URLEncoder.encode(field.getKey(), StandardCharsets.UTF_8) + "=" +
+                          URLEncoder.encode(field.getValue(), StandardCharsets.UTF_8))
+            .collect(Collectors.joining("&"));
+        return post(path, HttpRequest.BodyPublishers.ofString(body), "application/x-www-form-urlencoded");
+    }
+
+    private HttpRequest post(String path, HttpRequest.BodyPublisher body, String contentType) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(Duration.ofSeconds(options.requestTimeoutSeconds))
+            .POST(body);
+        if (contentType != null) {
+            builder.header("Content-Type", contentType);
+        }
+        return builder.build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(Duration.ofSeconds(options.requestTimeoutSeconds))
+            .GET()
+            .build();
+    }
+
+    private static HttpClient newClient() {
+        // Redirects are inspected by hand: login and the upload outcome are only visible in them
+        return HttpClient.newBuilder()
+            .cookieHandler(new CookieManager())
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    }
+
+    private static boolean redirectsTo(HttpResponse<String> response, String location) {
+        return response.statusCode() == 302 &&
+               response.headers().firstValue("Location").map(value -> value.contains(location)).orElse(false);
+    }
+
+    private EndpointStats stats(String endpoint) {
+        return stats.computeIfAbsent(endpoint, name -> new EndpointStats());
+    }
+
+    private void report(double elapsedSeconds, FakeGitHubServer gitHub) {
+        System.out.println();
+        System.out.printf("%-14s %8s %8s %7s %9s %9s %9s %8s%n",
+                          "endpoint", "requests", "errors", "error%", "p50 ms", "p99 ms", "max ms", "req/s");
+        stats.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+            EndpointStats endpoint = entry.getValue();
+            List<Long> latencies = endpoint.sortedLatencies();
+            long requests = latencies.size() + endpoint.unanswered;
+            System.out.printf("%-14s %8d %8d %6.2f%% %9.1f %9.1f %9.1f %8.2f%n",
+                              entry.getKey(), requests, endpoint.errors,
+                              requests == 0 ? 0.0 : 100.0 * endpoint.errors / requests,
+                              percentile(latencies, 0.50), percentile(latencies, 0.99),
+                              latencies.isEmpty() ? 0.0 : latencies.get(latencies.size() - 1) / 1e6,
+                              requests / elapsedSeconds);
+        });
+        System.out.println();
+        System.out.printf("Fake GitHub: %d requests, %d injected errors, %d rate limited%n",
+                          gitHub.getRequests(), gitHub.getInjectedErrors(), gitHub.getRateLimited());
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0.0;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, rank)) / 1e6;
+    }
+
+    /** Latencies in nanoseconds plus error counts for one endpoint. */
+    private static class EndpointStats {
+        private final List<Long> latencies = new ArrayList<>();
+        private long errors;
+        private long unanswered;
+
+        synchronized void record(long nanos, boolean failed) {
+            latencies.add(nanos);
+            if (failed) {
+                errors++;
+            }
+        }
+
+        /** A failure only visible after the response was recorded, e.g. in a flash message. */
+        synchronized void error() {
+            errors++;
+        }
+
+        /** A request that timed out or lost its connection. */
+        synchronized void unanswered() {
+            unanswered++;
+            errors++;
+        }
+
+        synchronized List<Long> sortedLatencies() {
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            return sorted;
+        }
+    }
+
+    /** Command line options, all with defaults. */
+    public static class Options {
+        int users = 50;
+        int durationSeconds = 120;
+        int rampUpSeconds = 10;
+        long thinkTimeMs = 500;
+        int filesPerUpload = 2;
+        int mergeIntervalSeconds = 30;
+        int shards = 1;
+        int requestTimeoutSeconds = 120;
+        long latencyMs = 150;
+        long jitterMs = 100;
+        double errorRate = 0.01;
+        int rateLimit = 5000;
+        long rateWindowSeconds = 3600;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String name = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--users" -> options.users = Integer.parseInt(value);
+                    case "--duration" -> options.durationSeconds = Integer.parseInt(value);
+                    case "--ramp-up" -> options.rampUpSeconds = Integer.parseInt(value);
+                    case "--think-ms" -> options.thinkTimeMs = Long.parseLong(value);
+                    case "--files-per-upload" -> options.filesPerUpload = Integer.parseInt(value);
+                    case "--merge-interval" -> options.mergeIntervalSeconds = Integer.parseInt(value);
+                    case "--shards" -> options.shards = Integer.parseInt(value);
+                    case "--request-timeout" -> options.requestTimeoutSeconds = Integer.parseInt(value);
+                    case "--latency-ms" -> options.latencyMs = Long.parseLong(value);
+                    case "--jitter-ms" -> options.jitterMs = Long.parseLong(value);
+                    case "--error-rate" -> options.errorRate = Double.parseDouble(value);
+                    case "--rate-limit" -> options.rateLimit = Integer.parseInt(value);
+                    case "--rate-window" -> options.rateWindowSeconds = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + name);
+                }
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.pdfprinting.load;
+
+import com.pdfprinting.bench.SyntheticPdfs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Startup measurements for the application jar, run as separate JVMs against {@link FakeGitHubServer}.
+ * <ul>
+ *   <li>{@code train}: starts the fast-startup jar with {@code -XX:ArchiveClassesAtExit}, logs in,
+ *       uploads, merges and downloads, then stops it so the JVM writes the class-data-sharing archive.</li>
+ *   <li>{@code measure}: starts the regular jar and the fast-startup jar (Spring AOT plus the archive)
+ *       several times each and reports the time from launching the JVM to the first answered request.</li>
+ * </ul>
+ */
+public class StartupBenchmark {
+
+    private static final String ADMIN_EMAIL = "admin@startup.test";
+    private static final String ADMIN_PASSWORD = "admin-startup-test";
+    private static final String BATCH = "Batch 1";
+
+    private final Options options;
+    private String baseUrl;
+    private long launchedAt;
+
+    public static void main(String[] args) throws Exception {
+        new StartupBenchmark(Options.parse(args)).run();
+    }
+
+    public StartupBenchmark(Options options) {
+        this.options = options;
+    }
+
+    public void run() throws Exception {
+        FakeGitHubServer.Settings settings = new FakeGitHubServer.Settings();
+        settings.latencyMs = 0;
+        settings.jitterMs = 0;
+        FakeGitHubServer gitHub = new FakeGitHubServer(settings);
+        gitHub.start();
+        try {
+            if (options.mode.equals("train")) {
+                train(gitHub.getUrl());
+            } else {
+                measure(gitHub.getUrl());
+            }
+        } finally {
+            gitHub.stop();
+        }
+    }
+
+    private void train(String gitHubUrl) throws Exception {
+        Path archive = Path.of(options.archive).toAbsolutePath();
+        Files.deleteIfExists(archive);
+        Path database = Files.createTempDirectory("startup-training").resolve("app");
+        String databaseUrl = "jdbc:h2:file:" + database + ";AUTO_SERVER=TRUE";
+
+        Process app = launch(Path.of(options.fastJar), List.of("-XX:ArchiveClassesAtExit=" + archive, "-Dspring.aot.enabled=true"),
+                             gitHubUrl, databaseUrl);
+        try {
+            System.out.printf("Training run ready after %.0f ms%n", awaitFirstRequest(app) / 1e6);
+            exercise(databaseUrl);
+        } finally {
+            stop(app);
+        }
+
+        if (!Files.exists(archive)) {
+            throw new IllegalStateException("The JVM did not write " + archive + "; see " + logFile());
+        }
+        System.out.printf("Wrote %s (%d KB)%n", archive, Files.size(archive) / 1024);
+    }
+
+    private void measure(String gitHubUrl) throws Exception {
+        Map<String, List<Long>> results = new LinkedHashMap<>();
+        results.put("regular", new ArrayList<>());
+        results.put("fast-startup", new ArrayList<>());
+
+        for (int run = 0; run < options.runs; run++) {
+            // Alternate so both variants see the same machine conditions
+            results.get("regular").add(timeToFirstRequest(Path.of(options.regularJar), List.of(), gitHubUrl));
+            results.get("fast-startup").add(timeToFirstRequest(Path.of(options.fastJar),
+                List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=" + Path.of(options.archive).toAbsolutePath()),
+                gitHubUrl));
+        }
+
+        System.out.println();
+        System.out.printf("%-14s %6s %9s %9s %9s%n", "variant", "runs", "min ms", "p50 ms", "max ms");
+        results.forEach((variant, times) -> {
+            Collections.sort(times);
+            System.out.printf("%-14s %6d %9.0f %9.0f %9.0f%n", variant, times.size(),
+                              times.get(0) / 1e6, times.get(times.size() / 2) / 1e6, times.get(times.size() - 1) / 1e6);
+        });
+    }
+
+    private long timeToFirstRequest(Path jar, List<String> jvmFlags, String gitHubUrl) throws Exception {
+        Process app = launch(jar, jvmFlags, gitHubUrl, "jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1");
+        try {
+            return awaitFirstRequest(app);
+        } finally {
+            stop(app);
+        }
+    }
+
+    private Process launch(Path jar, List<String> jvmFlags, String gitHubUrl, String databaseUrl) throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        baseUrl = "http://127.0.0.1:" + port;
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmFlags);
+        command.add("-jar");
+        command.add(jar.toAbsolutePath().toString());
+
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", String.valueOf(port));
+        properties.put("spring.datasource.url", databaseUrl);
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("github.token", "startup-test");
+        properties.put("github.api-url", gitHubUrl);
+        properties.put("github.repository", "startup/uploads");
+        properties.put("admin.email", ADMIN_EMAIL);
+        properties.put("admin.password", ADMIN_PASSWORD);
+        properties.put("app.base-url", "http://localhost");
+        properties.put("spring.mail.host", "127.0.0.1");
+        properties.put("spring.mail.port", "1");
+        properties.put("spring.mail.username", "noreply@startup.test");
+        properties.forEach((name, value) -> command.add("--" + name + "=" + value));
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.appendTo(logFile().toFile()));
+        launchedAt = System.nanoTime();
+        return builder.start();
+    }
+
+    private long awaitFirstRequest(Process app) throws Exception {
+        HttpClient client = newClient();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.timeoutSeconds);
+
+        while (System.nanoTime() < deadline) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("Application exited with " + app.exitValue() + "; see " + logFile());
+            }
+            try {
+                HttpResponse<String> response = client.send(get("/login"), HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) {
+                    return System.nanoTime() - launchedAt;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("No answer within " + options.timeoutSeconds + "s; see " + logFile());
+    }
+
+    private void stop(Process app) throws InterruptedException {
+        // SIGTERM lets the JVM exit normally, which is when it writes the archive
+        app.destroy();
+        if (!app.waitFor(60, TimeUnit.SECONDS)) {
+            app.destroyForcibly().waitFor();
+        }
+    }
+
+    /** The requests a deadline day consists of, so their classes end up in the archive. */
+    private void exercise(String databaseUrl) throws Exception {
+        HttpClient student = newClient();
+        String email = "student-" + UUID.randomUUID().toString().substring(0, 8) + "@startup.test";
+        Map<String, String> registration = new LinkedHashMap<>();
+        registration.put("name", "Startup Student");
+        registration.put("email", email);
+        registration.put("branch", "CSE");
+        registration.put("rollNumber", "START" + Math.abs(email.hashCode()));
+        registration.put("phoneNumber", "9000000000");
+        registration.put("batch", BATCH);
+        registration.put("password", "password");
+        expect(student, get("/register"), 200);
+        expect(student, form("/register", registration), 302);
+        expect(student, get("/verify-email?token=" + verificationToken(databaseUrl, email)), 302);
+        expect(student, form("/login", Map.of("username", email, "password", "wrong")), 302);
+        expect(student, form("/login", Map.of("username", email, "password", "password")), 302);
+        expect(student, get("/student/dashboard"), 200);
+
+        Path corpus = Files.createTempDirectory("startup-pdfs");
+        List<byte[]> pdfs = new ArrayList<>();
+        for (String fileName : SyntheticPdfs.generate(SyntheticPdfs.Corpus.TEXT_SMALL, corpus).subList(0, 3)) {
+            pdfs.add(Files.readAllBytes(corpus.resolve(fileName)));
+        }
+        expect(student, upload(pdfs), 302);
+        expect(student, get("/student/dashboard"), 200);
+
+        HttpClient admin = newClient();
+        String batchPath = URLEncoder.encode(BATCH, StandardCharsets.UTF_8).replace("+", "%20");
+        expect(admin, form("/login", Map.of("username", ADMIN_EMAIL, "password", ADMIN_PASSWORD)), 302);
+        expect(admin, get("/admin/dashboard"), 200);
+        expect(admin, get("/admin/batch/" + batchPath), 200);
+        expect(admin, post("/admin/merge/" + batchPath, HttpRequest.BodyPublishers.noBody(), null), 302);
+        awaitMerge(admin, "/admin/merge/" + batchPath + "/status");
+        expect(admin, get("/admin/download/" + batchPath), 200);
+        expect(admin, get("/admin/statistics"), 200);
+        expect(admin, get("/actuator/health"), 200);
+    }
+
+    private String verificationToken(String databaseUrl, String email) throws Exception {
+        try (Connection connection = DriverManager.getConnection(databaseUrl, "sa", "");
+             PreparedStatement statement = connection.prepareStatement("SELECT verification_token FROM users WHERE email = ?")) {
+            statement.setString(1, email);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new IllegalStateException("Registration of " + email + " was not stored");
+                }
+                return resultSet.getString(1);
+            }
+        }
+    }
+
+    private void awaitMerge(HttpClient admin, String statusPath) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.timeoutSeconds);
+        while (System.nanoTime() < deadline) {
+            String body = admin.send(get(statusPath), HttpResponse.BodyHandlers.ofString()).body();
+            if (body.contains("\"status\":\"COMPLETED\"")) {
+                return;
+            }
+            if (body.contains("\"status\":\"FAILED\"")) {
+                throw new IllegalStateException("Merge failed: " + body);
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Merge did not finish within " + options.timeoutSeconds + "s");
+    }
+
+    private void expect(HttpClient client, HttpRequest request, int status) throws Exception {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != status) {
+            throw new IllegalStateException(request.method() + " " + request.uri().getPath() + " answered " +
+                                            response.statusCode() + " instead of " + status);
+        }
+    }
+
+    private HttpRequest upload(List<byte[]> pdfs) {
+        String boundary = "----startup" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writePart(body, boundary, "Content-Disposition: form-data; name=\"batch\"", BATCH.getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < pdfs.size(); i++) {
+            writePart(body, boundary, "Content-Disposition: form-data; name=\"files\"; filename=\"startup-" + i + ".pdf\"\r\n" +
+                                      "Content-Type: application/pdf", pdfs.get(i));
+        }
+        body.writeBytes(("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return post("/student/upload", HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()),
+                    "multipart/form-data; boundary=" + boundary);
+    }
+
+    private static void writePart(ByteArrayOutputStream body, String boundary, String headers, byte[] content) {
+        body.writeBytes(("--" + boundary + "\r\n" + headers + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private HttpRequest form(String path, Map<String, String> fields) {
+        String body = fields.entrySet().stream()
+            .map(field -> URLEncoder.encode(field.getKey(), StandardCharsets.UTF_8) + "=" +
+                          URLEncoder.encode(field.getValue(), StandardCharsets.UTF_8))
+            .collect(Collectors.joining("&"));
+        return post(path, HttpRequest.BodyPublishers.ofString(body), "application/x-www-form-urlencoded");
+    }
+
+    private HttpRequest post(String path, HttpRequest.BodyPublisher body, String contentType) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(Duration.ofSeconds(60))
+            .POST(body);
+        if (contentType != null) {
+            builder.header("Content-Type", contentType);
+        }
+        return builder.build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(Duration.ofSeconds(60))
+            .GET()
+            .build();
+    }
+
+    private static HttpClient newClient() {
+        return HttpClient.newBuilder()
+            .cookieHandler(new CookieManager())
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+    }
+
+    private Path logFile() {
+        return Path.of(options.log).toAbsolutePath();
+    }
+
+    /** Command line options; the first argument is the mode, {@code train} or {@code measure}. */
+    public static class Options {
+        String mode;
+        String regularJar = "target/pdf-printing-app-0.0.1-SNAPSHOT.jar";
+        String fastJar = "target/fast-startup/pdf-printing-app-0.0.1-SNAPSHOT-cds.jar";
+        String archive = "target/fast-startup/app.jsa";
+        String log = "target/startup-benchmark.log";
+        int runs = 10;
+        int timeoutSeconds = 120;
+
+        static Options parse(String[] args) {
+            if (args.length == 0 || !(args[0].equals("train") || args[0].equals("measure"))) {
+                throw new IllegalArgumentException("Usage: StartupBenchmark train|measure [options]");
+            }
+            Options options = new Options();
+            options.mode = args[0];
+            for (int i = 1; i < args.length; i++) {
+                String name = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + name);
+                }
+                String value = args[++i];
+                switch (name) {
+                    case "--regular-jar" -> options.regularJar = value;
+                    case "--fast-jar" -> options.fastJar = value;
+                    case "--archive" -> options.archive = value;
+                    case "--log" -> options.log = value;
+                    case "--runs" -> options.runs = Integer.parseInt(value);
+                    case "--timeout" -> options.timeoutSeconds = Integer.parseInt(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + name);
+                }
+            }
+            return options;
+        }
+    }
+}
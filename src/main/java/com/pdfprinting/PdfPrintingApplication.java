@@ -3,8 +3,12 @@ package com.pdfprinting;
 import io.github.cdimascio.dotenv.Dotenv;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.Map;
 
 @SpringBootApplication
+@EnableScheduling
 public class PdfPrintingApplication {
     public static void main(String[] args) {
         Dotenv dotenv = Dotenv.configure()
@@ -14,6 +18,16 @@ public class PdfPrintingApplication {
         dotenv.entries().forEach(entry ->
                 System.setProperty(entry.getKey(), entry.getValue())
         );
-        SpringApplication.run(PdfPrintingApplication.class, args);
+        SpringApplication application = new SpringApplication(PdfPrintingApplication.class);
+        // Defaults only; application.properties and the environment still take precedence
+        application.setDefaultProperties(Map.of(
+                "management.endpoints.web.exposure.include", "health,info,metrics,prometheus",
+                // Liveness only depends on the JVM; readiness waits for the storage check
+                "management.endpoint.health.probes.enabled", "true",
+                "management.endpoint.health.group.readiness.include", "readinessState,gitHubStorage",
+                // Sessions live in the database (see V7), so any node can serve any request
+                "spring.session.jdbc.initialize-schema", "never"
+        ));
+        application.run(args);
     }
 }
@@ -1,32 +1,72 @@
 package com.pdfprinting.config;
 
 import com.pdfprinting.service.GitHubStorageService;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
-import org.springframework.core.annotation.Order;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
-@Component
-@Order(2) // Run after DataInitializer
-public class GitHubConfig implements CommandLineRunner {
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the GitHub storage once the application is ready instead of during startup, so a
+ * slow or unreachable API never delays boot. The outcome is reported as the
+ * {@code gitHubStorage} health indicator, which is part of the readiness group; a failed
+ * check is retried every {@code github.startup-check.retry-ms} until it succeeds.
+ */
+@Component("gitHubStorage")
+public class GitHubConfig implements HealthIndicator {
 
     private static final Logger logger = LoggerFactory.getLogger(GitHubConfig.class);
 
     @Autowired
     private GitHubStorageService gitHubStorageService;
 
+    @Value("${github.startup-check.retry-ms:60000}")
+    private long retryMs;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "github-startup-check");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Health health = Health.outOfService().withDetail("state", "checking").build();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startChecks() {
+        executor.execute(this::check);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
     @Override
-    public void run(String... args) throws Exception {
+    public Health health() {
+        return health;
+    }
+
+    private void check() {
         logger.info("Initializing GitHub integration...");
         
         // Test GitHub connection
         if (gitHubStorageService.testConnection()) {
             logger.info("GitHub connection successful");
-            logger.info("Repository info: {}", gitHubStorageService.getRepositoryInfo());
+            String repositoryInfo = gitHubStorageService.getRepositoryInfo();
+            logger.info("Repository info: {}", repositoryInfo);
             
-            // Initialize repository structure
+            // Initialize repository structure; skipped for repositories that already have it
             try {
                 gitHubStorageService.initializeRepository();
                 logger.info("GitHub repository initialized successfully");
@@ -34,11 +74,22 @@ public class GitHubConfig implements CommandLineRunner {
                 logger.warn("Failed to initialize repository structure: {}", e.getMessage());
             }
             
+            health = Health.up()
+                .withDetail("repositories", repositoryInfo)
+                .withDetail("checkedAt", Instant.now().toString())
+                .build();
+            
         } else {
             logger.error("GitHub connection failed. Please check your configuration:");
             logger.error("1. Set GITHUB_TOKEN environment variable with a valid GitHub personal access token");
             logger.error("2. Set GITHUB_REPOSITORY environment variable (format: username/repository-name)");
             logger.error("3. Ensure the repository exists and the token has appropriate permissions");
+            
+            health = Health.down()
+                .withDetail("error", "Cannot reach the configured GitHub repositories")
+                .withDetail("checkedAt", Instant.now().toString())
+                .build();
+            executor.schedule(this::check, retryMs, TimeUnit.MILLISECONDS);
         }
     }
 }
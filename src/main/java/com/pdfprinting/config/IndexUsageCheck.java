@@ -0,0 +1,107 @@
+package com.pdfprinting.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs EXPLAIN on the hot queries at startup and fails if one of them does not use the
+ * index the migrations create for it. Works against the embedded H2 database as well as
+ * PostgreSQL; enable with {@code app.schema.verify-indexes=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.schema.verify-indexes", havingValue = "true")
+public class IndexUsageCheck implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexUsageCheck.class);
+
+    // SQL equivalent of each repository query, with the index it must use
+    private static final Map<String, String[]> HOT_QUERIES = new LinkedHashMap<>();
+    static {
+        HOT_QUERIES.put("findByBatchAndStatusOrderByUploadedAtAsc", new String[] {
+            "SELECT * FROM pdf_uploads WHERE batch = 'Batch 1' AND status = 'PENDING' ORDER BY uploaded_at",
+            "idx_pdf_uploads_batch_status_uploaded" });
+        HOT_QUERIES.put("findByUserOrderByUploadedAtDesc", new String[] {
+            "SELECT * FROM pdf_uploads WHERE user_id = 1 ORDER BY uploaded_at DESC",
+            "idx_pdf_uploads_user_uploaded" });
+        HOT_QUERIES.put("findByEmail", new String[] {
+            "SELECT * FROM users WHERE email = 'student@example.com'",
+            "uk_users_email" });
+        HOT_QUERIES.put("findByVerificationToken", new String[] {
+            "SELECT * FROM users WHERE verification_token = 'token'",
+            "idx_users_verification_token" });
+        HOT_QUERIES.put("existsByRollNumber", new String[] {
+            "SELECT id FROM users WHERE roll_number = 'ROLL001'",
+            "uk_users_roll_number" });
+        HOT_QUERIES.put("findByRepositoryAndPath", new String[] {
+            "SELECT * FROM stored_files WHERE repository = 'owner/repo' AND path = 'uploads/file.pdf'",
+            "uk_stored_files_repository_path" });
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) throws Exception {
+        List<String> failures = jdbcTemplate.execute((ConnectionCallback<List<String>>) this::check);
+
+        if (failures != null && !failures.isEmpty()) {
+            throw new IllegalStateException("Hot queries not using their index: " + String.join("; ", failures));
+        }
+        logger.info("All {} hot queries use their indexes", HOT_QUERIES.size());
+    }
+
+    private List<String> check(Connection connection) throws SQLException {
+        boolean postgres = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgresql");
+        List<String> failures = new ArrayList<>();
+
+        try (Statement statement = connection.createStatement()) {
+            if (postgres) {
+                // Small or empty tables are cheaper to scan; ask whether the index is usable, not whether it is chosen today
+                statement.execute("SET enable_seqscan = off");
+            }
+            try {
+                for (Map.Entry<String, String[]> query : HOT_QUERIES.entrySet()) {
+                    String plan = explain(statement, query.getValue()[0]);
+                    String index = query.getValue()[1];
+
+                    if (plan.toLowerCase().contains(index)) {
+                        logger.info("{} uses {}", query.getKey(), index);
+                    } else {
+                        logger.warn("{} does not use {}: {}", query.getKey(), index, plan);
+                        failures.add(query.getKey() + " (expected " + index + ")");
+                    }
+                }
+            } finally {
+                if (postgres) {
+                    statement.execute("RESET enable_seqscan");
+                }
+            }
+        }
+        return failures;
+    }
+
+    private String explain(Statement statement, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+            while (resultSet.next()) {
+                plan.append(resultSet.getString(1)).append('\n');
+            }
+        }
+        return plan.toString().trim();
+    }
+}
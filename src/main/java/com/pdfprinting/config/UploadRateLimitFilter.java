@@ -0,0 +1,74 @@
+package com.pdfprinting.config;
+
+import com.pdfprinting.service.UploadRateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.security.Principal;
+
+/**
+ * Applies the per-student upload rate limits before the request body is read. Runs after
+ * Spring Security, which identifies the student, and before the DispatcherServlet parses
+ * the multipart body, so a limited upload is answered with 429 without receiving the files.
+ */
+@Component
+public class UploadRateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private UploadRateLimiter uploadRateLimiter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Form uploads and the start of a chunked upload; chunks are bounded by their session
+        String path = request.getServletPath();
+        return !"POST".equals(request.getMethod()) ||
+               !(path.equals("/student/upload") || path.equals("/student/uploads"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Principal principal = request.getUserPrincipal();
+        if (principal == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfter = uploadRateLimiter.tryAcquire(principal.getName(), uploadSize(request));
+        if (retryAfter == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        String message = "Too many uploads, please try again in " + retryAfter + " seconds";
+        if (request.getServletPath().equals("/student/uploads")) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"" + message + "\"}");
+        } else {
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), message);
+        }
+    }
+
+    private long uploadSize(HttpServletRequest request) {
+        if (request.getServletPath().equals("/student/uploads")) {
+            // The declared file size; the body of this request is just the form fields
+            try {
+                return Long.parseLong(request.getParameter("size"));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return Math.max(0, request.getContentLengthLong());
+    }
+}
@@ -1,19 +1,41 @@
 package com.pdfprinting.controller;
 
+import com.pdfprinting.model.Batch;
+import com.pdfprinting.model.MergeJob;
 import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.service.AutoMergeScheduler;
+import com.pdfprinting.service.BatchExportService;
+import com.pdfprinting.service.BatchService;
+import com.pdfprinting.service.DashboardEventService;
+import com.pdfprinting.service.MergeJobService;
+import com.pdfprinting.service.MergedPdf;
 import com.pdfprinting.service.PdfMergeService;
 import com.pdfprinting.service.PdfUploadService;
+import com.pdfprinting.service.ServiceUnavailableException;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.Arrays;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -28,21 +50,36 @@ public class AdminController {
     @Autowired
     private PdfMergeService pdfMergeService;
 
-    private final List<String> availableBatches = Arrays.asList(
-        "Batch 1", "Batch 2", "Batch 3", "Batch 4", "Batch 5"
-    );
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private DashboardEventService dashboardEventService;
+
+    @Autowired
+    private AutoMergeScheduler autoMergeScheduler;
+
+    @Autowired
+    private MergeJobService mergeJobService;
+
+    @Autowired
+    private BatchExportService batchExportService;
 
     @GetMapping("/dashboard")
     public String dashboard(Model model) {
-        // Get upload counts for each batch
-        Map<String, Long> batchCounts = availableBatches.stream()
-            .collect(Collectors.toMap(
-                batch -> batch,
-                batch -> (long) pdfUploadService.getBatchUploads(batch).size()
-            ));
-
-        model.addAttribute("batches", availableBatches);
-        model.addAttribute("batchCounts", batchCounts);
+        // One row per batch with its counters, however many uploads there are
+        List<Batch> batches = batchService.getBatches();
+        Map<String, MergeJob> mergeJobs = new LinkedHashMap<>();
+        for (Batch batch : batches) {
+            MergeJob job = mergeJobService.getLatestJob(batch.getName());
+            if (job != null) {
+                mergeJobs.put(batch.getName(), job);
+            }
+        }
+
+        model.addAttribute("batches", batches);
+        model.addAttribute("mergeJobs", mergeJobs);
+        model.addAttribute("totalPending", batches.stream().mapToLong(Batch::getPendingFiles).sum());
         model.addAttribute("title", "Admin Dashboard - PDF Printing System");
         
         return "admin/dashboard";
@@ -53,75 +90,190 @@ public class AdminController {
         List<PdfUpload> uploads = pdfUploadService.getBatchUploads(batchName);
         
         model.addAttribute("batchName", batchName);
+        model.addAttribute("batch", batchService.getBatch(batchName));
+        model.addAttribute("nextAutoMerge", autoMergeScheduler.getNextRun(batchName));
         model.addAttribute("uploads", uploads);
         model.addAttribute("title", batchName + " - Admin Dashboard");
         
         return "admin/batch-details";
     }
 
+    /**
+     * The pending PDFs of the batch as they were uploaded, streamed as a ZIP while they are fetched.
+     */
+    @GetMapping("/batch/{batchName}/export.zip")
+    public void exportBatch(@PathVariable String batchName, HttpServletResponse response) throws Exception {
+        List<PdfUpload> uploads = pdfUploadService.getBatchUploads(batchName);
+        if (uploads.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "No pending PDFs in " + batchName);
+            return;
+        }
+        
+        // No Content-Length: the archive is written as the files arrive
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"" + batchName.replace(" ", "_") + "_originals.zip\"");
+        batchExportService.exportZip(batchName, uploads, response.getOutputStream());
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter events() {
+        // Batch counter changes and merge progress for the dashboard and batch pages
+        return dashboardEventService.subscribe();
+    }
+
     @PostMapping("/merge/{batchName}")
-    public String mergeBatch(@PathVariable String batchName, 
+    public String mergeBatch(@PathVariable String batchName, Authentication authentication,
                             RedirectAttributes redirectAttributes) {
         try {
-            List<PdfUpload> uploads = pdfUploadService.getBatchUploads(batchName);
+            Batch batch = batchService.getBatch(batchName);
             
-            if (uploads.isEmpty()) {
+            if (batch == null || batch.getPendingFiles() == 0) {
                 redirectAttributes.addFlashAttribute("error", 
                     "No pending uploads found for " + batchName);
                 return "redirect:/admin/dashboard";
             }
 
-            // Store merged PDF in session or temporary storage for download
-            byte[] mergedPdf = pdfMergeService.mergeBatchPdfs(batchName);
+            // A merge worker on any node picks it up; everything uploaded until then is included
+            MergeJob job = mergeJobService.enqueue(batchName, authentication.getName());
+            
+            redirectAttributes.addFlashAttribute("message", 
+                "Merge of " + batchName + " queued (job " + job.getId() + "). " +
+                "The download link appears on the batch card when it is done.");
+            
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("error", 
+                "Failed to queue the merge: " + e.getMessage());
+        }
+        
+        return "redirect:/admin/dashboard";
+    }
+
+    @GetMapping("/merge/{batchName}/status")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> mergeStatus(@PathVariable String batchName) {
+        MergeJob job = mergeJobService.getLatestJob(batchName);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("id", job.getId());
+        status.put("batch", job.getBatch());
+        status.put("status", job.getStatus().name());
+        status.put("attempts", job.getAttempts());
+        status.put("createdAt", job.getCreatedAt());
+        status.put("finishedAt", job.getFinishedAt());
+        status.put("files", job.getFileCount());
+        status.put("pages", job.getPageCount());
+        status.put("error", job.getError());
+        return ResponseEntity.ok(status);
+    }
+
+    @PostMapping("/batch/{batchName}/schedule")
+    public String scheduleBatch(@PathVariable String batchName,
+                                @RequestParam(required = false) String mergeCron,
+                                RedirectAttributes redirectAttributes) {
+        try {
+            autoMergeScheduler.updateSchedule(batchName, mergeCron);
             
-            // Clear the batch queue
-            pdfUploadService.clearBatchUploads(batchName);
+            LocalDateTime nextRun = autoMergeScheduler.getNextRun(batchName);
+            redirectAttributes.addFlashAttribute("message", nextRun != null
+                ? "Automatic merge of " + batchName + " scheduled, next run at " + nextRun.withNano(0)
+                : "Automatic merge of " + batchName + " disabled.");
+            
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("error", 
+                "Failed to update the merge schedule: " + e.getMessage());
+        }
+        
+        return "redirect:/admin/batch/" + batchName;
+    }
+
+    @PostMapping("/cleanup/{batchName}")
+    public String cleanupBatch(@PathVariable String batchName,
+                               RedirectAttributes redirectAttributes) {
+        try {
+            int deletedCount = pdfUploadService.purgeProcessedUploads(batchName);
             
             redirectAttributes.addFlashAttribute("message", 
-                uploads.size() + " PDFs from " + batchName + " have been merged successfully!");
-            redirectAttributes.addFlashAttribute("downloadReady", true);
-            redirectAttributes.addFlashAttribute("batchName", batchName);
+                deletedCount + " processed PDFs from " + batchName + " have been removed from storage.");
             
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", 
-                "Failed to merge PDFs: " + e.getMessage());
+                "Failed to clean up processed PDFs: " + e.getMessage());
         }
         
         return "redirect:/admin/dashboard";
     }
 
     @GetMapping("/download/{batchName}")
-    public ResponseEntity<ByteArrayResource> downloadMergedPdf(@PathVariable String batchName) {
+    public ResponseEntity<Resource> downloadMergedPdf(@PathVariable String batchName,
+                                                      @RequestParam(value = "inline", defaultValue = "false") boolean inline,
+                                                      @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) {
         try {
-            byte[] mergedPdf = pdfMergeService.getMergedPdf(batchName);
-            
-            ByteArrayResource resource = new ByteArrayResource(mergedPdf);
+            MergedPdf mergedPdf = pdfMergeService.getMergedPdf(batchName);
+            if (mergedPdf == null) {
+                return ResponseEntity.notFound().build();
+            }
+            String etag = "\"" + mergedPdf.getSha256() + "\"";
             
-            return ResponseEntity.ok()
+            // Spring answers If-None-Match/If-Modified-Since with 304 and Range with 206 for file resources.
+            // If-Range is left to us: when it no longer matches, a stream body makes Spring send the whole file.
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .lastModified(mergedPdf.getCreatedAt())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                // Inline lets the browser's viewer fetch a linearized file by ranges and show it as it arrives
                 .header(HttpHeaders.CONTENT_DISPOSITION, 
-                    "attachment; filename=\"" + batchName.replace(" ", "_") + "_merged.pdf\"")
-                .contentType(MediaType.APPLICATION_PDF)
-                .contentLength(mergedPdf.length)
-                .body(resource);
+                    (inline ? "inline" : "attachment") + "; filename=\"" + batchName.replace(" ", "_") + "_merged.pdf\"")
+                .contentType(MediaType.APPLICATION_PDF);
+            
+            if (ifRange != null && !ifRangeMatches(ifRange, etag, mergedPdf.getCreatedAt())) {
+                return response
+                    .contentLength(mergedPdf.getSize())
+                    .body(new InputStreamResource(Files.newInputStream(mergedPdf.getPath())));
+            }
+            return response.body(new FileSystemResource(mergedPdf.getPath()));
                 
+        } catch (ServiceUnavailableException e) {
+            // The merge exists; fetching it from storage was refused for the moment
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
         } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private boolean ifRangeMatches(String ifRange, String etag, Instant lastModified) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Only a strong validator may be used for ranges, so a weak one never matches
+            return ifRange.equals(etag);
+        }
+        try {
+            Instant date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return date.getEpochSecond() == lastModified.getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
         }
     }
 
     @GetMapping("/statistics")
     public String statistics(Model model) {
         // Get statistics for all batches
-        Map<String, Long> batchCounts = availableBatches.stream()
-            .collect(Collectors.toMap(
-                batch -> batch,
-                batch -> (long) pdfUploadService.getBatchUploads(batch).size()
-            ));
+        List<Batch> batches = batchService.getBatches();
+        Map<String, Long> batchCounts = batches.stream()
+            .collect(Collectors.toMap(Batch::getName, Batch::getPendingFiles, (first, second) -> first, LinkedHashMap::new));
 
         long totalPending = batchCounts.values().stream().mapToLong(Long::longValue).sum();
         
+        model.addAttribute("batches", batches);
         model.addAttribute("batchCounts", batchCounts);
         model.addAttribute("totalPending", totalPending);
+        model.addAttribute("activeBatches", batches.stream().filter(batch -> batch.getPendingFiles() > 0).count());
         model.addAttribute("title", "Statistics - Admin Dashboard");
         
         return "admin/statistics";
@@ -1,6 +1,7 @@
 package com.pdfprinting.controller;
 
 import com.pdfprinting.model.User;
+import com.pdfprinting.service.BatchService;
 import com.pdfprinting.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +17,9 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private BatchService batchService;
+
     @GetMapping("/")
     public String home() {
         return "redirect:/login";
@@ -38,6 +42,7 @@ public class AuthController {
     @GetMapping("/register")
     public String registerPage(Model model) {
         model.addAttribute("user", new User());
+        model.addAttribute("batchNames", batchService.getBatchNames());
         model.addAttribute("title", "Register - PDF Printing System");
         return "auth/register";
     }
@@ -48,6 +53,7 @@ public class AuthController {
                               Model model,
                               RedirectAttributes redirectAttributes) {
         if (result.hasErrors()) {
+            model.addAttribute("batchNames", batchService.getBatchNames());
             model.addAttribute("title", "Register - PDF Printing System");
             return "auth/register";
         }
@@ -59,6 +65,7 @@ public class AuthController {
             return "redirect:/login";
         } catch (Exception e) {
             model.addAttribute("error", e.getMessage());
+            model.addAttribute("batchNames", batchService.getBatchNames());
             model.addAttribute("title", "Register - PDF Printing System");
             return "auth/register";
         }
@@ -0,0 +1,171 @@
+package com.pdfprinting.controller;
+
+import com.pdfprinting.model.UploadSession;
+import com.pdfprinting.model.User;
+import com.pdfprinting.service.ChunkedUploadService;
+import com.pdfprinting.service.ServiceUnavailableException;
+import com.pdfprinting.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resumable upload API: create a session, PUT byte ranges with a Content-Range header,
+ * GET the session to learn how far it got, then POST to finalize.
+ */
+@RestController
+@RequestMapping("/student/uploads")
+public class ChunkedUploadController {
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> createSession(@RequestParam("filename") String filename,
+                                                             @RequestParam("size") long size,
+                                                             @RequestParam("batch") String batch,
+                                                             @RequestParam(value = "pageRanges", required = false) String pageRanges,
+                                                             @RequestParam(value = "copies", defaultValue = "1") int copies,
+                                                             Authentication authentication) {
+        User user = userService.findByEmail(authentication.getName()).orElse(null);
+        if (user == null) {
+            return error(HttpStatus.UNAUTHORIZED, "User not found");
+        }
+        
+        try {
+            UploadSession session = chunkedUploadService.createSession(filename, size, batch, pageRanges, copies, user);
+            return ResponseEntity.status(HttpStatus.CREATED).body(describe(session));
+        } catch (ServiceUnavailableException e) {
+            // Storage is down, so the file would only wait in the spool until the session expires
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(response);
+        } catch (Exception e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getSession(@PathVariable String id, Authentication authentication) {
+        UploadSession session = findSession(id, authentication);
+        if (session == null) {
+            return error(HttpStatus.NOT_FOUND, "Upload session not found");
+        }
+        return ResponseEntity.ok(describe(session));
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> writeChunk(@PathVariable String id,
+                                                          @RequestHeader("Content-Range") String contentRange,
+                                                          HttpServletRequest request,
+                                                          Authentication authentication) {
+        UploadSession session = findSession(id, authentication);
+        if (session == null) {
+            return error(HttpStatus.NOT_FOUND, "Upload session not found");
+        }
+        
+        Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+        if (!matcher.matches() || Long.parseLong(matcher.group(3)) != session.getSize()) {
+            return error(HttpStatus.BAD_REQUEST, "Invalid Content-Range: " + contentRange);
+        }
+        long start = Long.parseLong(matcher.group(1));
+        long end = Long.parseLong(matcher.group(2));
+        
+        // Client is ahead of us (e.g. a lost chunk): tell it where to resume
+        if (start > session.getReceived()) {
+            Map<String, Object> response = describe(session);
+            response.put("error", "Chunk does not start at or before the current offset");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        
+        try {
+            chunkedUploadService.writeChunk(session, start, end, request.getInputStream());
+            return ResponseEntity.ok(describe(session));
+        } catch (Exception e) {
+            Map<String, Object> response = describe(session);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    @PostMapping("/{id}/finalize")
+    public ResponseEntity<Map<String, Object>> finalizeSession(@PathVariable String id, Authentication authentication) {
+        User user = userService.findByEmail(authentication.getName()).orElse(null);
+        UploadSession session = user != null ? chunkedUploadService.getSession(id, user) : null;
+        if (session == null) {
+            return error(HttpStatus.NOT_FOUND, "Upload session not found");
+        }
+        
+        try {
+            int uploadedCount = chunkedUploadService.finalizeSession(session, user);
+            Map<String, Object> response = new HashMap<>();
+            response.put("uploaded", uploadedCount);
+            response.put("message", uploadedCount + " PDF(s) uploaded successfully!");
+            return ResponseEntity.ok(response);
+        } catch (ServiceUnavailableException e) {
+            // The session is kept, so the client can finalize again after the delay
+            Map<String, Object> response = describe(session);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(response);
+        } catch (Exception e) {
+            Map<String, Object> response = describe(session);
+            response.put("error", "Upload failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> cancelSession(@PathVariable String id, Authentication authentication) {
+        UploadSession session = findSession(id, authentication);
+        if (session == null) {
+            return error(HttpStatus.NOT_FOUND, "Upload session not found");
+        }
+        
+        try {
+            chunkedUploadService.cancelSession(session);
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    private UploadSession findSession(String id, Authentication authentication) {
+        User user = userService.findByEmail(authentication.getName()).orElse(null);
+        return user != null ? chunkedUploadService.getSession(id, user) : null;
+    }
+
+    private Map<String, Object> describe(UploadSession session) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", session.getId());
+        response.put("filename", session.getFilename());
+        response.put("size", session.getSize());
+        response.put("offset", session.getReceived());
+        response.put("pageRanges", session.getPageRanges());
+        response.put("copies", session.getCopies());
+        return response;
+    }
+
+    private ResponseEntity<Map<String, Object>> error(HttpStatus status, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("error", message);
+        return ResponseEntity.status(status).body(response);
+    }
+}
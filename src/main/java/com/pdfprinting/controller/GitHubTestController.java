@@ -1,13 +1,20 @@
 package com.pdfprinting.controller;
 
+import com.pdfprinting.model.StorageRebalance;
 import com.pdfprinting.service.GitHubStorageService;
+import com.pdfprinting.service.StorageRebalanceService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,6 +26,9 @@ public class GitHubTestController {
     @Autowired
     private GitHubStorageService gitHubStorageService;
 
+    @Autowired
+    private StorageRebalanceService storageRebalanceService;
+
     @GetMapping("/test")
     public ResponseEntity<Map<String, Object>> testGitHubConnection() {
         Map<String, Object> response = new HashMap<>();
@@ -60,4 +70,44 @@ public class GitHubTestController {
         
         return ResponseEntity.ok(response);
     }
+
+    /** Starts a rebalance in the background; poll the returned location for its progress. */
+    @PostMapping("/rebalance")
+    public ResponseEntity<Map<String, Object>> rebalanceStorage(Authentication authentication) {
+        try {
+            StorageRebalance rebalance = storageRebalanceService.start(authentication.getName());
+            Map<String, Object> response = describe(rebalance);
+            response.put("message", "Storage rebalance started");
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/github/rebalance/" + rebalance.getId()))
+                .body(response);
+            
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            response.put("message", "Failed to start storage rebalance");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+
+    @GetMapping("/rebalance/{id}")
+    public ResponseEntity<Map<String, Object>> rebalanceStatus(@PathVariable Long id) {
+        return storageRebalanceService.getRebalance(id)
+            .map(rebalance -> ResponseEntity.ok(describe(rebalance)))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    private Map<String, Object> describe(StorageRebalance rebalance) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", rebalance.getId());
+        response.put("status", rebalance.getStatus().name());
+        response.put("startedAt", rebalance.getStartedAt());
+        response.put("finishedAt", rebalance.getFinishedAt());
+        response.put("checked", rebalance.getChecked());
+        response.put("moved", rebalance.getMoved());
+        response.put("failed", rebalance.getFailed());
+        response.put("error", rebalance.getError());
+        return response;
+    }
 }
@@ -2,9 +2,14 @@ package com.pdfprinting.controller;
 
 import com.pdfprinting.model.PdfUpload;
 import com.pdfprinting.model.User;
+import com.pdfprinting.service.BatchService;
 import com.pdfprinting.service.PdfUploadService;
+import com.pdfprinting.service.ServiceUnavailableException;
 import com.pdfprinting.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -12,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
 import java.util.List;
 
 @Controller
@@ -24,6 +30,9 @@ public class StudentController {
     @Autowired
     private PdfUploadService pdfUploadService;
 
+    @Autowired
+    private BatchService batchService;
+
     @GetMapping("/dashboard")
     public String dashboard(Authentication authentication, Model model) {
         String email = authentication.getName();
@@ -37,6 +46,7 @@ public class StudentController {
         
         model.addAttribute("user", user);
         model.addAttribute("uploads", uploads);
+        model.addAttribute("batchNames", batchService.getBatchNames());
         model.addAttribute("title", "Student Dashboard - PDF Printing System");
         
         return "student/dashboard";
@@ -45,8 +55,11 @@ public class StudentController {
     @PostMapping("/upload")
     public String uploadPdfs(@RequestParam("files") MultipartFile[] files,
                             @RequestParam("batch") String batch,
+                            @RequestParam(value = "pageRanges", required = false) String pageRanges,
+                            @RequestParam(value = "copies", defaultValue = "1") int copies,
                             Authentication authentication,
-                            RedirectAttributes redirectAttributes) {
+                            HttpServletResponse response,
+                            RedirectAttributes redirectAttributes) throws IOException {
         
         String email = authentication.getName();
         User user = userService.findByEmail(email).orElse(null);
@@ -57,9 +70,14 @@ public class StudentController {
         }
 
         try {
-            int uploadedCount = pdfUploadService.uploadPdfs(files, batch, user);
+            int uploadedCount = pdfUploadService.uploadPdfs(files, batch, user, pageRanges, copies);
             redirectAttributes.addFlashAttribute("message", 
                 uploadedCount + " PDF(s) uploaded successfully!");
+        } catch (ServiceUnavailableException e) {
+            // Shed the upload when memory is short or storage is down; nothing was stored
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage());
+            return null;
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", 
                 "Upload failed: " + e.getMessage());
@@ -91,4 +109,30 @@ public class StudentController {
 
         return "redirect:/student/dashboard";
     }
+
+    @PostMapping("/print-options/{id}")
+    public String setPrintOptions(@PathVariable Long id,
+                                  @RequestParam(value = "pageRanges", required = false) String pageRanges,
+                                  @RequestParam(value = "copies", defaultValue = "1") int copies,
+                                  Authentication authentication,
+                                  RedirectAttributes redirectAttributes) {
+        
+        String email = authentication.getName();
+        User user = userService.findByEmail(email).orElse(null);
+        
+        if (user == null) {
+            redirectAttributes.addFlashAttribute("error", "User not found");
+            return "redirect:/student/dashboard";
+        }
+
+        try {
+            pdfUploadService.setPrintOptions(id, user, pageRanges, copies);
+            redirectAttributes.addFlashAttribute("message", "Print options updated!");
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("error", 
+                "Update failed: " + e.getMessage());
+        }
+
+        return "redirect:/student/dashboard";
+    }
 }
@@ -0,0 +1,77 @@
+package com.pdfprinting.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A print batch with running totals of its pending queue. The counters are kept up to date
+ * by atomic UPDATEs on upload, delete and merge (see BatchRepository) and periodically
+ * reconciled against pdf_uploads, so dashboards never have to scan the uploads.
+ */
+@Entity
+@Table(name = "batches",
+       uniqueConstraints = @UniqueConstraint(name = "uk_batches_name", columnNames = "name"))
+public class Batch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false)
+    private long pendingFiles;
+
+    @Column(nullable = false)
+    private long pendingBytes;
+
+    @Column(nullable = false)
+    private long pendingPages;
+
+    @Column(nullable = false)
+    private long pendingStudents;
+
+    // When the reconcile last had to correct the counters
+    private LocalDateTime reconciledAt;
+
+    // Database time of the last counter change, polled by dashboard event streams
+    private LocalDateTime changedAt;
+
+    // Spring cron expression (second minute hour day month weekday) for automatic merges, or null
+    @Column(length = 120)
+    private String mergeCron;
+
+    // Constructors
+    public Batch() {}
+
+    public Batch(String name) {
+        this.name = name;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public long getPendingFiles() { return pendingFiles; }
+    public void setPendingFiles(long pendingFiles) { this.pendingFiles = pendingFiles; }
+
+    public long getPendingBytes() { return pendingBytes; }
+    public void setPendingBytes(long pendingBytes) { this.pendingBytes = pendingBytes; }
+
+    public long getPendingPages() { return pendingPages; }
+    public void setPendingPages(long pendingPages) { this.pendingPages = pendingPages; }
+
+    public long getPendingStudents() { return pendingStudents; }
+    public void setPendingStudents(long pendingStudents) { this.pendingStudents = pendingStudents; }
+
+    public LocalDateTime getReconciledAt() { return reconciledAt; }
+    public void setReconciledAt(LocalDateTime reconciledAt) { this.reconciledAt = reconciledAt; }
+
+    public LocalDateTime getChangedAt() { return changedAt; }
+
+    public String getMergeCron() { return mergeCron; }
+    public void setMergeCron(String mergeCron) { this.mergeCron = mergeCron; }
+}
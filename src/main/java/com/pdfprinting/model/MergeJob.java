@@ -0,0 +1,150 @@
+package com.pdfprinting.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A queued merge of the uploads a batch received up to {@code cutoff}. Whichever node claims
+ * it runs it, renewing {@code leaseUntil} while it works; see MergeJobService.
+ */
+@Entity
+@Table(name = "merge_jobs",
+       uniqueConstraints = @UniqueConstraint(name = "uk_merge_jobs_dedupe_key", columnNames = "dedupe_key"),
+       indexes = {
+           @Index(name = "idx_merge_jobs_status_created", columnList = "status, created_at"),
+           @Index(name = "idx_merge_jobs_batch_created", columnList = "batch, created_at")
+       })
+public class MergeJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String batch;
+
+    @Column(nullable = false)
+    private LocalDateTime cutoff;
+
+    // Admin email, or "schedule" for automatic merges
+    @Column(nullable = false)
+    private String requestedBy;
+
+    // Set for scheduled merges, so each cutoff is queued once however many nodes schedule it
+    private String dedupeKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.QUEUED;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    private String claimedBy;
+
+    private LocalDateTime leaseUntil;
+
+    private LocalDateTime heartbeatAt;
+
+    // A queued job is not claimed before this; set when storage or memory was short
+    private LocalDateTime notBefore;
+
+    @Column(nullable = false)
+    private int deferrals;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    private Integer fileCount;
+
+    private Integer pageCount;
+
+    // Merge progress of a running job, for dashboards on any node
+    private Integer processedFiles;
+
+    private Integer totalFiles;
+
+    // Database time of the last progress or status change, polled by dashboard event streams
+    private LocalDateTime changedAt;
+
+    @Column(length = 1000)
+    private String error;
+
+    // Constructors
+    public MergeJob() {}
+
+    public MergeJob(String batch, LocalDateTime cutoff, String requestedBy, String dedupeKey) {
+        this.batch = batch;
+        this.cutoff = cutoff;
+        this.requestedBy = requestedBy;
+        this.dedupeKey = dedupeKey;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getBatch() { return batch; }
+    public void setBatch(String batch) { this.batch = batch; }
+
+    public LocalDateTime getCutoff() { return cutoff; }
+    public void setCutoff(LocalDateTime cutoff) { this.cutoff = cutoff; }
+
+    public String getRequestedBy() { return requestedBy; }
+    public void setRequestedBy(String requestedBy) { this.requestedBy = requestedBy; }
+
+    public String getDedupeKey() { return dedupeKey; }
+    public void setDedupeKey(String dedupeKey) { this.dedupeKey = dedupeKey; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public String getClaimedBy() { return claimedBy; }
+    public void setClaimedBy(String claimedBy) { this.claimedBy = claimedBy; }
+
+    public LocalDateTime getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(LocalDateTime leaseUntil) { this.leaseUntil = leaseUntil; }
+
+    public LocalDateTime getHeartbeatAt() { return heartbeatAt; }
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) { this.heartbeatAt = heartbeatAt; }
+
+    public LocalDateTime getNotBefore() { return notBefore; }
+    public void setNotBefore(LocalDateTime notBefore) { this.notBefore = notBefore; }
+
+    public int getDeferrals() { return deferrals; }
+    public void setDeferrals(int deferrals) { this.deferrals = deferrals; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public Integer getFileCount() { return fileCount; }
+    public void setFileCount(Integer fileCount) { this.fileCount = fileCount; }
+
+    public Integer getPageCount() { return pageCount; }
+    public void setPageCount(Integer pageCount) { this.pageCount = pageCount; }
+
+    public Integer getProcessedFiles() { return processedFiles; }
+
+    public Integer getTotalFiles() { return totalFiles; }
+
+    public LocalDateTime getChangedAt() { return changedAt; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+}
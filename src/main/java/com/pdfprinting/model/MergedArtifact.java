@@ -0,0 +1,98 @@
+package com.pdfprinting.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The latest merged PDF of a batch. The file itself lives in the blob store, split into
+ * parts below the per-file limit of the GitHub API; nodes keep a local copy as a cache.
+ */
+@Entity
+@Table(name = "merged_pdfs")
+public class MergedArtifact {
+    @Id
+    @Column(name = "batch")
+    private String batch;
+
+    @Column(nullable = false)
+    private String storageShard;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private long fileSize;
+
+    @Column(nullable = false)
+    private int pageCount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "merged_pdf_parts", joinColumns = @JoinColumn(name = "batch"))
+    @OrderColumn(name = "part_index")
+    private List<Part> parts = new ArrayList<>();
+
+    // Constructors
+    public MergedArtifact() {}
+
+    public MergedArtifact(String batch, String storageShard, String sha256, long fileSize, int pageCount,
+                          LocalDateTime createdAt) {
+        this.batch = batch;
+        this.storageShard = storageShard;
+        this.sha256 = sha256;
+        this.fileSize = fileSize;
+        this.pageCount = pageCount;
+        this.createdAt = createdAt;
+    }
+
+    // Getters and Setters
+    public String getBatch() { return batch; }
+    public void setBatch(String batch) { this.batch = batch; }
+
+    public String getStorageShard() { return storageShard; }
+    public void setStorageShard(String storageShard) { this.storageShard = storageShard; }
+
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+
+    public long getFileSize() { return fileSize; }
+    public void setFileSize(long fileSize) { this.fileSize = fileSize; }
+
+    public int getPageCount() { return pageCount; }
+    public void setPageCount(int pageCount) { this.pageCount = pageCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public List<Part> getParts() { return parts; }
+    public void setParts(List<Part> parts) { this.parts = parts; }
+
+    /** One stored slice of the merged file, concatenated in list order. */
+    @Embeddable
+    public static class Part {
+        @Column(nullable = false)
+        private String githubPath;
+
+        @Column(nullable = false, length = 40)
+        private String blobSha;
+
+        @Column(nullable = false)
+        private long fileSize;
+
+        public Part() {}
+
+        public Part(String githubPath, String blobSha, long fileSize) {
+            this.githubPath = githubPath;
+            this.blobSha = blobSha;
+            this.fileSize = fileSize;
+        }
+
+        public String getGithubPath() { return githubPath; }
+        public String getBlobSha() { return blobSha; }
+        public long getFileSize() { return fileSize; }
+    }
+}
@@ -4,7 +4,11 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "pdf_uploads")
+@Table(name = "pdf_uploads",
+       indexes = {
+           @Index(name = "idx_pdf_uploads_batch_status_uploaded", columnList = "batch, status, uploaded_at"),
+           @Index(name = "idx_pdf_uploads_user_uploaded", columnList = "user_id, uploaded_at DESC")
+       })
 public class PdfUpload {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -19,12 +23,36 @@ public class PdfUpload {
     @Column(nullable = false)
     private String githubPath;
 
+    @Column(length = 40)
+    private String blobSha;
+
+    private String storageShard;
+
     @Column(nullable = false)
     private String batch;
 
     @Column(nullable = false)
     private long fileSize;
 
+    @Column(nullable = false)
+    private int pageCount;
+
+    // Null prints every page
+    @Column(length = 200)
+    private String pageRanges;
+
+    @Column(nullable = false)
+    private int copies = 1;
+
+    // Selected pages times copies, what this upload adds to the merged PDF
+    @Column(nullable = false)
+    private int printedPages;
+
+    // Size before the optimization stage rewrote the file; null until it has run
+    private Long originalFileSize;
+
+    private LocalDateTime optimizedAt;
+
     @Column(nullable = false)
     private LocalDateTime uploadedAt = LocalDateTime.now();
 
@@ -35,6 +63,10 @@ public class PdfUpload {
     @Enumerated(EnumType.STRING)
     private Status status = Status.PENDING;
 
+    // Saving a stale copy fails rather than undoing a concurrent change, e.g. to githubPath
+    @Version
+    private long version;
+
     // Constructors
     public PdfUpload() {}
 
@@ -61,12 +93,40 @@ public class PdfUpload {
     public String getGithubPath() { return githubPath; }
     public void setGithubPath(String githubPath) { this.githubPath = githubPath; }
 
+    public String getBlobSha() { return blobSha; }
+    public void setBlobSha(String blobSha) { this.blobSha = blobSha; }
+
+    public String getStorageShard() { return storageShard; }
+    public void setStorageShard(String storageShard) { this.storageShard = storageShard; }
+
     public String getBatch() { return batch; }
     public void setBatch(String batch) { this.batch = batch; }
 
     public long getFileSize() { return fileSize; }
     public void setFileSize(long fileSize) { this.fileSize = fileSize; }
 
+    public int getPageCount() { return pageCount; }
+    public void setPageCount(int pageCount) { this.pageCount = pageCount; }
+
+    public String getPageRanges() { return pageRanges; }
+    public void setPageRanges(String pageRanges) { this.pageRanges = pageRanges; }
+
+    public int getCopies() { return copies; }
+    public void setCopies(int copies) { this.copies = copies; }
+
+    public int getPrintedPages() { return printedPages; }
+    public void setPrintedPages(int printedPages) { this.printedPages = printedPages; }
+
+    public Long getOriginalFileSize() { return originalFileSize; }
+    public void setOriginalFileSize(Long originalFileSize) { this.originalFileSize = originalFileSize; }
+
+    public LocalDateTime getOptimizedAt() { return optimizedAt; }
+    public void setOptimizedAt(LocalDateTime optimizedAt) { this.optimizedAt = optimizedAt; }
+
+    public long getBytesSaved() {
+        return originalFileSize != null ? originalFileSize - fileSize : 0;
+    }
+
     public LocalDateTime getUploadedAt() { return uploadedAt; }
     public void setUploadedAt(LocalDateTime uploadedAt) { this.uploadedAt = uploadedAt; }
 
@@ -76,6 +136,8 @@ public class PdfUpload {
     public Status getStatus() { return status; }
     public void setStatus(Status status) { this.status = status; }
 
+    public long getVersion() { return version; }
+
     public enum Status {
         PENDING, PROCESSED, DELETED
     }
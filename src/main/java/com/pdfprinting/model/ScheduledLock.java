@@ -0,0 +1,39 @@
+package com.pdfprinting.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Lets a scheduled task that fires on every node run on one of them only: the node that
+ * takes the lock runs the task, the others skip it.
+ */
+@Entity
+@Table(name = "scheduled_locks")
+public class ScheduledLock {
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDateTime lockedUntil;
+
+    private String lockedBy;
+
+    private LocalDateTime lockedAt;
+
+    // Constructors
+    public ScheduledLock() {}
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public LocalDateTime getLockedUntil() { return lockedUntil; }
+    public void setLockedUntil(LocalDateTime lockedUntil) { this.lockedUntil = lockedUntil; }
+
+    public String getLockedBy() { return lockedBy; }
+    public void setLockedBy(String lockedBy) { this.lockedBy = lockedBy; }
+
+    public LocalDateTime getLockedAt() { return lockedAt; }
+    public void setLockedAt(LocalDateTime lockedAt) { this.lockedAt = lockedAt; }
+}
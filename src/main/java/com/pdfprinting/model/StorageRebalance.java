@@ -0,0 +1,86 @@
+package com.pdfprinting.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A run of StorageRebalanceService. It works in the background on the node that started it
+ * and records its counters here, so its progress can be polled through any node.
+ */
+@Entity
+@Table(name = "storage_rebalances")
+public class StorageRebalance {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.RUNNING;
+
+    @Column(nullable = false)
+    private String requestedBy;
+
+    @Column(nullable = false)
+    private String node;
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt = LocalDateTime.now();
+
+    private LocalDateTime finishedAt;
+
+    @Column(nullable = false)
+    private int checked;
+
+    @Column(nullable = false)
+    private int moved;
+
+    @Column(nullable = false)
+    private int failed;
+
+    @Column(length = 1000)
+    private String error;
+
+    // Constructors
+    public StorageRebalance() {}
+
+    public StorageRebalance(String requestedBy, String node) {
+        this.requestedBy = requestedBy;
+        this.node = node;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getRequestedBy() { return requestedBy; }
+    public void setRequestedBy(String requestedBy) { this.requestedBy = requestedBy; }
+
+    public String getNode() { return node; }
+    public void setNode(String node) { this.node = node; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public int getChecked() { return checked; }
+    public void setChecked(int checked) { this.checked = checked; }
+
+    public int getMoved() { return moved; }
+    public void setMoved(int moved) { this.moved = moved; }
+
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+}
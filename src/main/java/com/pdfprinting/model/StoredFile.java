@@ -0,0 +1,57 @@
+package com.pdfprinting.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "stored_files",
+       uniqueConstraints = @UniqueConstraint(name = "uk_stored_files_repository_path", columnNames = {"repository", "path"}))
+public class StoredFile {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String repository;
+
+    @Column(nullable = false)
+    private String path;
+
+    @Column(nullable = false, length = 40)
+    private String sha;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Constructors
+    public StoredFile() {}
+
+    public StoredFile(String repository, String path, String sha, long size) {
+        this.repository = repository;
+        this.path = path;
+        this.sha = sha;
+        this.size = size;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getRepository() { return repository; }
+    public void setRepository(String repository) { this.repository = repository; }
+
+    public String getPath() { return path; }
+    public void setPath(String path) { this.path = path; }
+
+    public String getSha() { return sha; }
+    public void setSha(String sha) { this.sha = sha; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,89 @@
+package com.pdfprinting.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A resumable upload in progress. The bytes themselves are in the spool file named after the id;
+ * {@code received} is how many of them have arrived, so a client can resume through any node.
+ */
+@Entity
+@Table(name = "upload_sessions")
+public class UploadSession {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false)
+    private String ownerEmail;
+
+    @Column(nullable = false)
+    private String filename;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private String batch;
+
+    // Null prints every page
+    @Column(length = 200)
+    private String pageRanges;
+
+    @Column(nullable = false)
+    private int copies = 1;
+
+    @Column(nullable = false)
+    private long received;
+
+    @Column(nullable = false)
+    private LocalDateTime lastActivity = LocalDateTime.now();
+
+    // Set while a node stores the finished file
+    private LocalDateTime finalizingUntil;
+
+    // Constructors
+    public UploadSession() {}
+
+    public UploadSession(String id, String ownerEmail, String filename, long size, String batch,
+                         String pageRanges, int copies) {
+        this.id = id;
+        this.ownerEmail = ownerEmail;
+        this.filename = filename;
+        this.size = size;
+        this.batch = batch;
+        this.pageRanges = pageRanges;
+        this.copies = copies;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getOwnerEmail() { return ownerEmail; }
+    public void setOwnerEmail(String ownerEmail) { this.ownerEmail = ownerEmail; }
+
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public String getBatch() { return batch; }
+    public void setBatch(String batch) { this.batch = batch; }
+
+    public String getPageRanges() { return pageRanges; }
+    public void setPageRanges(String pageRanges) { this.pageRanges = pageRanges; }
+
+    public int getCopies() { return copies; }
+    public void setCopies(int copies) { this.copies = copies; }
+
+    public long getReceived() { return received; }
+    public void setReceived(long received) { this.received = received; }
+
+    public LocalDateTime getLastActivity() { return lastActivity; }
+    public void setLastActivity(LocalDateTime lastActivity) { this.lastActivity = lastActivity; }
+
+    public LocalDateTime getFinalizingUntil() { return finalizingUntil; }
+    public void setFinalizingUntil(LocalDateTime finalizingUntil) { this.finalizingUntil = finalizingUntil; }
+}
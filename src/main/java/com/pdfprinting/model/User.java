@@ -10,7 +10,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users",
+       uniqueConstraints = {
+           @UniqueConstraint(name = "uk_users_email", columnNames = "email"),
+           @UniqueConstraint(name = "uk_users_roll_number", columnNames = "roll_number")
+       },
+       indexes = @Index(name = "idx_users_verification_token", columnList = "verification_token"))
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -22,14 +27,12 @@ public class User {
 
     @NotBlank(message = "Email is required")
     @Email(message = "Please provide a valid email")
-    @Column(unique = true)
     private String email;
 
     @NotBlank(message = "Branch is required")
     private String branch;
 
     @NotBlank(message = "Roll number is required")
-    @Column(unique = true)
     private String rollNumber;
 
     @NotBlank(message = "Phone number is required")
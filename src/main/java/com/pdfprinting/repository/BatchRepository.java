@@ -0,0 +1,57 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.Batch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BatchRepository extends JpaRepository<Batch, Long> {
+    Optional<Batch> findByName(String name);
+    List<Batch> findAllByOrderByNameAsc();
+    boolean existsByName(String name);
+    List<Batch> findByChangedAtAfter(LocalDateTime since);
+
+    @Query("SELECT MAX(b.changedAt) FROM Batch b")
+    LocalDateTime findLastChange();
+
+    // Row lock that serializes merge job claims per batch across nodes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Batch b WHERE b.name = :name")
+    Optional<Batch> lockByName(@Param("name") String name);
+
+    // Relative update in a single statement, so concurrent uploads never lose an increment. Every counter
+    // update stamps changed_at with the database clock, which all nodes share
+    @Transactional
+    @Modifying
+    @Query("UPDATE Batch b SET b.pendingFiles = b.pendingFiles + :files, b.pendingBytes = b.pendingBytes + :bytes, " +
+           "b.pendingPages = b.pendingPages + :pages, b.pendingStudents = b.pendingStudents + :students, " +
+           "b.changedAt = CURRENT_TIMESTAMP WHERE b.name = :name")
+    int addPending(@Param("name") String name, @Param("files") long files, @Param("bytes") long bytes,
+                   @Param("pages") long pages, @Param("students") long students);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Batch b SET b.pendingFiles = b.pendingFiles - :files, b.pendingBytes = b.pendingBytes - :bytes, " +
+           "b.pendingPages = b.pendingPages - :pages, b.pendingStudents = b.pendingStudents - :students, " +
+           "b.changedAt = CURRENT_TIMESTAMP WHERE b.name = :name")
+    int removePending(@Param("name") String name, @Param("files") long files, @Param("bytes") long bytes,
+                      @Param("pages") long pages, @Param("students") long students);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Batch b SET b.pendingFiles = :files, b.pendingBytes = :bytes, b.pendingPages = :pages, " +
+           "b.pendingStudents = :students, b.reconciledAt = :reconciledAt, b.changedAt = CURRENT_TIMESTAMP WHERE b.name = :name")
+    int setPending(@Param("name") String name, @Param("files") long files, @Param("bytes") long bytes,
+                   @Param("pages") long pages, @Param("students") long students,
+                   @Param("reconciledAt") LocalDateTime reconciledAt);
+}
@@ -0,0 +1,80 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.MergeJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MergeJobRepository extends JpaRepository<MergeJob, Long> {
+    Optional<MergeJob> findFirstByBatchOrderByCreatedAtDescIdDesc(String batch);
+    Optional<MergeJob> findFirstByBatchAndStatusOrderByCreatedAtAsc(String batch, MergeJob.Status status);
+    boolean existsByBatchAndStatus(String batch, MergeJob.Status status);
+    boolean existsByBatchAndStatusInAndCutoffGreaterThanEqual(String batch, Collection<MergeJob.Status> statuses,
+                                                              LocalDateTime uploadedAt);
+    boolean existsByBatchAndStatusAndLeaseUntilAfterAndIdNot(String batch, MergeJob.Status status,
+                                                             LocalDateTime now, Long id);
+    List<MergeJob> findByChangedAtAfter(LocalDateTime since);
+
+    @Query("SELECT MAX(j.changedAt) FROM MergeJob j")
+    LocalDateTime findLastChange();
+
+    // Oldest job that is queued and due, or running on a lease nobody renewed, of a batch no other node is
+    // merging. Rows locked by another node's claim are skipped instead of waited for.
+    @Query(value = "SELECT * FROM merge_jobs j " +
+                   "WHERE ((j.status = 'QUEUED' AND (j.not_before IS NULL OR j.not_before <= :now)) " +
+                   "OR (j.status = 'RUNNING' AND j.lease_until < :now)) " +
+                   "AND NOT EXISTS (SELECT 1 FROM merge_jobs r WHERE r.batch = j.batch AND r.id <> j.id " +
+                   "AND r.status = 'RUNNING' AND r.lease_until >= :now) " +
+                   "ORDER BY j.created_at, j.id FETCH FIRST 1 ROWS ONLY FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<MergeJob> lockNextClaimable(@Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE MergeJob j SET j.heartbeatAt = :now, j.leaseUntil = :leaseUntil " +
+           "WHERE j.id IN :ids AND j.claimedBy = :node AND j.status = :status")
+    int renewLeases(@Param("ids") Collection<Long> ids, @Param("node") String node, @Param("status") MergeJob.Status status,
+                    @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE MergeJob j SET j.processedFiles = :processed, j.totalFiles = :total, j.changedAt = CURRENT_TIMESTAMP " +
+           "WHERE j.batch = :batch AND j.status = :running")
+    int recordProgress(@Param("batch") String batch, @Param("running") MergeJob.Status running,
+                       @Param("processed") int processed, @Param("total") int total);
+
+    // Only the node still holding the job may finish it; a node that lost its lease changes nothing
+    @Transactional
+    @Modifying
+    @Query("UPDATE MergeJob j SET j.status = :status, j.finishedAt = :now, j.fileCount = :files, j.pageCount = :pages, " +
+           "j.error = :error, j.leaseUntil = null, j.changedAt = CURRENT_TIMESTAMP WHERE j.id = :id AND j.claimedBy = :node AND j.status = :running")
+    int finish(@Param("id") Long id, @Param("node") String node, @Param("running") MergeJob.Status running,
+               @Param("status") MergeJob.Status status, @Param("now") LocalDateTime now,
+               @Param("files") Integer files, @Param("pages") Integer pages, @Param("error") String error);
+
+    // Back to the queue until :notBefore; the claim that ended this way does not count as an attempt
+    @Transactional
+    @Modifying
+    @Query("UPDATE MergeJob j SET j.status = :queued, j.claimedBy = null, j.leaseUntil = null, j.notBefore = :notBefore, " +
+           "j.attempts = j.attempts - 1, j.deferrals = j.deferrals + 1, j.error = :error, j.changedAt = CURRENT_TIMESTAMP " +
+           "WHERE j.id = :id AND j.claimedBy = :node AND j.status = :running")
+    int defer(@Param("id") Long id, @Param("node") String node, @Param("running") MergeJob.Status running,
+              @Param("queued") MergeJob.Status queued, @Param("notBefore") LocalDateTime notBefore,
+              @Param("error") String error);
+
+    // Hands this node's running jobs back to the queue on shutdown
+    @Transactional
+    @Modifying
+    @Query("UPDATE MergeJob j SET j.status = :queued, j.claimedBy = null, j.leaseUntil = null, " +
+           "j.changedAt = CURRENT_TIMESTAMP WHERE j.claimedBy = :node AND j.status = :running")
+    int release(@Param("node") String node, @Param("running") MergeJob.Status running,
+                @Param("queued") MergeJob.Status queued);
+}
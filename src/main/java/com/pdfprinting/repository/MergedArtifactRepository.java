@@ -0,0 +1,9 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.MergedArtifact;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MergedArtifactRepository extends JpaRepository<MergedArtifact, String> {
+}
@@ -2,15 +2,73 @@ package com.pdfprinting.repository;
 
 import com.pdfprinting.model.PdfUpload;
 import com.pdfprinting.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface PdfUploadRepository extends JpaRepository<PdfUpload, Long> {
     List<PdfUpload> findByUserOrderByUploadedAtDesc(User user);
     List<PdfUpload> findByBatchAndStatusOrderByUploadedAtAsc(String batch, PdfUpload.Status status);
+
+    List<PdfUpload> findByBatchAndStatusAndUploadedAtLessThanEqualOrderByUploadedAtAsc(String batch, PdfUpload.Status status,
+                                                                                      LocalDateTime cutoff);
+    List<PdfUpload> findByBatchAndStatusAndUploadedAtBeforeOrderByUploadedAtAsc(String batch, PdfUpload.Status status,
+                                                                                LocalDateTime before, Pageable pageable);
     List<PdfUpload> findByBatchOrderByUploadedAtAsc(String batch);
+    List<PdfUpload> findByStatusNot(PdfUpload.Status status);
     void deleteByBatchAndStatus(String batch, PdfUpload.Status status);
+    boolean existsByUserAndBatchAndStatus(User user, String batch, PdfUpload.Status status);
+    long countByUserAndBatchAndStatus(User user, String batch, PdfUpload.Status status);
+
+    // Row locks for changing pending uploads; the caller holds the transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM PdfUpload p WHERE p.id IN :ids")
+    List<PdfUpload> lockAllById(@Param("ids") Collection<Long> ids);
+
+    // The optimizer's results only apply to the file it read, and only while that is still pending
+    @Transactional
+    @Modifying
+    @Query("UPDATE PdfUpload p SET p.originalFileSize = :originalSize, p.optimizedAt = :now, p.version = p.version + 1 " +
+           "WHERE p.id = :id AND p.status = :pending AND p.githubPath = :path")
+    int markOptimized(@Param("id") Long id, @Param("pending") PdfUpload.Status pending, @Param("path") String path,
+                      @Param("originalSize") long originalSize, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PdfUpload p SET p.githubPath = :newPath, p.blobSha = :newSha, p.fileSize = :newSize, " +
+           "p.originalFileSize = :originalSize, p.optimizedAt = :now, p.version = p.version + 1 " +
+           "WHERE p.id = :id AND p.status = :pending AND p.githubPath = :oldPath")
+    int replaceFile(@Param("id") Long id, @Param("pending") PdfUpload.Status pending, @Param("oldPath") String oldPath,
+                    @Param("newPath") String newPath, @Param("newSha") String newSha, @Param("newSize") long newSize,
+                    @Param("originalSize") long originalSize, @Param("now") LocalDateTime now);
+
+    // Per batch: files, bytes, printed pages and distinct students, used to reconcile the Batch counters
+    @Query("SELECT p.batch, COUNT(p), COALESCE(SUM(p.fileSize), 0), COALESCE(SUM(p.printedPages), 0), COUNT(DISTINCT p.user) " +
+           "FROM PdfUpload p WHERE p.status = :status GROUP BY p.batch")
+    List<Object[]> summarizeByBatch(@Param("status") PdfUpload.Status status);
+
+    // The same for one batch, as a single row
+    @Query("SELECT COUNT(p), COALESCE(SUM(p.fileSize), 0), COALESCE(SUM(p.printedPages), 0), COUNT(DISTINCT p.user) " +
+           "FROM PdfUpload p WHERE p.batch = :batch AND p.status = :status")
+    List<Object[]> summarizeBatch(@Param("batch") String batch, @Param("status") PdfUpload.Status status);
+
+    // Copies rows into pdf_uploads_archive; the caller deletes them in the same transaction
+    @Modifying
+    @Query(value = "INSERT INTO pdf_uploads_archive (id, user_id, batch, original_file_name, github_path, storage_shard, " +
+                   "file_size, original_file_size, page_count, uploaded_at, status, archived_at) " +
+                   "SELECT id, user_id, batch, original_file_name, github_path, storage_shard, " +
+                   "file_size, original_file_size, page_count, uploaded_at, status, :archivedAt " +
+                   "FROM pdf_uploads WHERE id IN (:ids)", nativeQuery = true)
+    int copyToArchive(@Param("ids") List<Long> ids, @Param("archivedAt") LocalDateTime archivedAt);
 }
@@ -0,0 +1,28 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.ScheduledLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ScheduledLockRepository extends JpaRepository<ScheduledLock, String> {
+
+    // Takes the lock if nobody holds it; of nodes racing for it, exactly one updates the row
+    @Transactional
+    @Modifying
+    @Query("UPDATE ScheduledLock l SET l.lockedUntil = :until, l.lockedBy = :node, l.lockedAt = :now " +
+           "WHERE l.name = :name AND l.lockedUntil <= :now")
+    int claim(@Param("name") String name, @Param("node") String node,
+              @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ScheduledLock l SET l.lockedUntil = :until WHERE l.name = :name AND l.lockedBy = :node")
+    int release(@Param("name") String name, @Param("node") String node, @Param("until") LocalDateTime until);
+}
@@ -0,0 +1,24 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.StorageRebalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface StorageRebalanceRepository extends JpaRepository<StorageRebalance, Long> {
+
+    // Runs a node left behind when it stopped; they will not finish
+    @Transactional
+    @Modifying
+    @Query("UPDATE StorageRebalance r SET r.status = :failed, r.finishedAt = :now, r.error = :error " +
+           "WHERE r.node = :node AND r.status = :running")
+    int abandon(@Param("node") String node, @Param("running") StorageRebalance.Status running,
+                @Param("failed") StorageRebalance.Status failed, @Param("now") LocalDateTime now,
+                @Param("error") String error);
+}
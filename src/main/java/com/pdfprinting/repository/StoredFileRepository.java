@@ -0,0 +1,12 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.StoredFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, Long> {
+    Optional<StoredFile> findByRepositoryAndPath(String repository, String path);
+}
@@ -0,0 +1,44 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    // Only ever moves forward, so a late resend of an earlier chunk cannot lose bytes another node recorded
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.received = CASE WHEN s.received < :received THEN :received ELSE s.received END, " +
+           "s.lastActivity = :now WHERE s.id = :id")
+    int recordReceived(@Param("id") String id, @Param("received") long received, @Param("now") LocalDateTime now);
+
+    // At most one node stores a finished session at a time; a node that dies holds it until the lease runs out
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.finalizingUntil = :until " +
+           "WHERE s.id = :id AND (s.finalizingUntil IS NULL OR s.finalizingUntil < :now)")
+    int claimFinalize(@Param("id") String id, @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.finalizingUntil = NULL WHERE s.id = :id")
+    int releaseFinalize(@Param("id") String id);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadSession s WHERE s.id = :id")
+    int deleteSession(@Param("id") String id);
+
+    @Query("SELECT s FROM UploadSession s WHERE s.lastActivity < :cutoff " +
+           "AND (s.finalizingUntil IS NULL OR s.finalizingUntil < :now)")
+    List<UploadSession> findExpired(@Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,213 @@
+package com.pdfprinting.service;
+
+import com.pdfprinting.model.Batch;
+import com.pdfprinting.model.MergeJob;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Merges batches automatically at their cutoff times. Each batch with a merge cron gets a
+ * one-shot task at its next cutoff; the task queues a merge job for the uploads received up
+ * to the cutoff and schedules the following one. Every node schedules every batch, and the
+ * job for a cutoff is only queued once. A schedule changed on another node is picked up when
+ * the old one next fires, as the task checks the cron in the database before queuing, and
+ * otherwise within {@code app.auto-merge.resync-ms}. Start times are offset per batch across
+ * {@code app.auto-merge.spread-seconds}, so batches with the same cutoff do not all reach
+ * the merge workers at once.
+ */
+@Service
+public class AutoMergeScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutoMergeScheduler.class);
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private MergeJobService mergeJobService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.auto-merge.spread-seconds:600}")
+    private long spreadSeconds;
+
+    // Zone the cron expressions are written in; empty means the server's zone
+    @Value("${app.auto-merge.zone:}")
+    private String zone;
+
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    private final Map<String, String> crons = new ConcurrentHashMap<>();
+    private final Map<String, ScheduledFuture<?>> tasks = new ConcurrentHashMap<>();
+    private final Map<String, LocalDateTime> nextRuns = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("auto-merge-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleAll() {
+        resync();
+    }
+
+    /** Brings the schedules of this node in line with the crons in the database. */
+    @Scheduled(fixedDelayString = "${app.auto-merge.resync-ms:60000}", initialDelayString = "${app.auto-merge.resync-ms:60000}")
+    public void resync() {
+        List<Batch> batches = batchService.getBatches();
+        for (Batch batch : batches) {
+            sync(batch.getName(), batch.getMergeCron());
+        }
+        Set<String> names = batches.stream().map(Batch::getName).collect(Collectors.toSet());
+        for (String batchName : crons.keySet()) {
+            if (!names.contains(batchName)) {
+                sync(batchName, null);
+            }
+        }
+    }
+
+    public void updateSchedule(String batchName, String mergeCron) throws Exception {
+        batchService.setMergeCron(batchName, mergeCron);
+        String cron = batchService.getBatch(batchName).getMergeCron();
+        if (cron == null) {
+            cancel(batchName);
+            logger.info("Automatic merge disabled for {}", batchName);
+        } else {
+            schedule(batchName, cron, ZonedDateTime.now(zoneId()));
+        }
+    }
+
+    public LocalDateTime getNextRun(String batchName) {
+        return nextRuns.get(batchName);
+    }
+
+    private synchronized void sync(String batchName, String cron) {
+        if (Objects.equals(cron, crons.get(batchName))) {
+            return;
+        }
+        if (cron == null) {
+            cancel(batchName);
+            logger.info("Automatic merge of {} disabled on another node", batchName);
+        } else {
+            schedule(batchName, cron, ZonedDateTime.now(zoneId()));
+        }
+    }
+
+    private synchronized void cancel(String batchName) {
+        crons.remove(batchName);
+        nextRuns.remove(batchName);
+        ScheduledFuture<?> task = tasks.remove(batchName);
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    private synchronized void schedule(String batchName, String cron, ZonedDateTime after) {
+        cancel(batchName);
+
+        // Recorded even if it never fires again, so the resync does not try it over and over
+        crons.put(batchName, cron);
+        ZonedDateTime cutoff = CronExpression.parse(cron).next(after);
+        if (cutoff == null) {
+            logger.warn("Merge cron '{}' of {} never fires again", cron, batchName);
+            return;
+        }
+        Instant start = cutoff.toInstant().plusSeconds(offset(batchName));
+
+        nextRuns.put(batchName, LocalDateTime.ofInstant(start, ZoneId.systemDefault()));
+        tasks.put(batchName, scheduler.schedule(() -> run(batchName, cron, cutoff), start));
+        logger.info("Next automatic merge of {} at cutoff {}, starting {}", batchName, cutoff, start);
+    }
+
+    private void run(String batchName, String cron, ZonedDateTime cutoff) {
+        // Upload times are stored in the server's zone
+        LocalDateTime snapshotTime = cutoff.withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        Batch batch = batchService.getBatch(batchName);
+        String current = batch != null ? batch.getMergeCron() : null;
+        if (!cron.equals(current)) {
+            // Changed or disabled on another node since this task was scheduled
+            logger.info("Merge cron of {} changed from '{}' to '{}', not merging at cutoff {}",
+                        batchName, cron, current, cutoff);
+            result("rescheduled");
+            synchronized (this) {
+                if (cron.equals(crons.get(batchName))) {
+                    sync(batchName, current);
+                }
+            }
+            return;
+        }
+        try {
+            if (batch.getPendingFiles() == 0) {
+                logger.info("No uploads for {} before cutoff {}, keeping the previous merge", batchName, cutoff);
+                result("empty");
+                return;
+            }
+            MergeJob job = mergeJobService.enqueueScheduled(batchName, snapshotTime);
+            if (job == null) {
+                logger.debug("Merge of {} at cutoff {} was already queued by another node", batchName, cutoff);
+                result("duplicate");
+            } else {
+                logger.info("Queued automatic merge {} of {} at cutoff {}", job.getId(), batchName, cutoff);
+                result("queued");
+            }
+        } catch (Exception e) {
+            logger.error("Automatic merge of {} could not be queued: {}", batchName, e.getMessage());
+            result("failed");
+        } finally {
+            synchronized (this) {
+                // Unless the schedule was changed meanwhile, continue from this cutoff so none is skipped
+                if (cron.equals(crons.get(batchName))) {
+                    schedule(batchName, cron, cutoff);
+                }
+            }
+        }
+    }
+
+    private long offset(String batchName) {
+        List<String> names = batchService.getBatchNames();
+        int index = names.indexOf(batchName);
+        if (spreadSeconds <= 0 || index < 0) {
+            return 0;
+        }
+        return spreadSeconds * index / names.size();
+    }
+
+    private ZoneId zoneId() {
+        return zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+    }
+
+    private void result(String outcome) {
+        meterRegistry.counter("pdf.merge.scheduled", "result", outcome).increment();
+    }
+}
@@ -0,0 +1,215 @@
+package com.pdfprinting.service;
+
+import com.pdfprinting.model.PdfUpload;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams the original PDFs of a batch as a ZIP, one folder per student, in upload order.
+ * Entries are STORED, as PDFs are compressed already. A STORED entry needs its size and CRC
+ * before its data, so up to {@code app.export.prefetch} files are fetched ahead into temp files
+ * while earlier ones are written; the archive itself is never buffered.
+ */
+@Service
+public class BatchExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchExportService.class);
+
+    @Autowired
+    private GitHubStorageService gitHubStorageService;
+
+    @Autowired
+    private StorageShardRouter storageShardRouter;
+
+    @Autowired
+    private StorageCircuitBreaker storageCircuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.export.threads:8}")
+    private int threads;
+
+    // Files fetched ahead per export
+    @Value("${app.export.prefetch:4}")
+    private int prefetch;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "export-fetch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Writes the ZIP to {@code out}. On failure the archive is left unfinished, so the client
+     * sees a broken download rather than a complete-looking ZIP with files missing.
+     */
+    public void exportZip(String batch, List<PdfUpload> uploads, OutputStream out) throws Exception {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < uploads.size(); i++) {
+            entries.add(new Entry(entryName(i + 1, uploads.get(i)), uploads.get(i)));
+        }
+
+        Deque<Future<Fetched>> window = new ArrayDeque<>();
+        int next = 0;
+        int written = 0;
+        String outcome = "failure";
+        try {
+            ZipOutputStream zip = new ZipOutputStream(out);
+            // Known from the database alone, so the download starts before any file is fetched
+            writeStored(zip, "manifest.csv", manifest(entries), System.currentTimeMillis());
+
+            for (Entry entry : entries) {
+                while (next < entries.size() && window.size() < Math.max(1, prefetch)) {
+                    Entry ahead = entries.get(next++);
+                    window.add(executor.submit(() -> storageCircuitBreaker.inBackground(() -> fetch(ahead))));
+                }
+                Fetched fetched = window.poll().get();
+                try {
+                    ZipEntry zipEntry = storedEntry(entry.name(), fetched.size(), fetched.crc(),
+                        entry.upload().getUploadedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                    zip.putNextEntry(zipEntry);
+                    Files.copy(fetched.file(), zip);
+                    zip.closeEntry();
+                    written++;
+                } finally {
+                    Files.deleteIfExists(fetched.file());
+                }
+            }
+
+            zip.finish();
+            zip.flush();
+            outcome = "success";
+            logger.info("Exported {} PDFs of {} as ZIP", entries.size(), batch);
+
+        } catch (Exception e) {
+            logger.warn("Export of {} failed after {} of {} files: {}", batch,
+                        written, entries.size(), e.getMessage());
+            throw e;
+        } finally {
+            // Let the fetches still running finish, then remove what they wrote
+            for (Future<Fetched> pending : window) {
+                try {
+                    Files.deleteIfExists(pending.get().file());
+                } catch (Exception ignored) {
+                    // It failed, or its file is gone already
+                }
+            }
+            sample.stop(Timer.builder("batch.export")
+                .description("Time to stream a batch as ZIP")
+                .tag("result", outcome)
+                .register(meterRegistry));
+        }
+    }
+
+    private Fetched fetch(Entry entry) throws Exception {
+        PdfUpload upload = entry.upload();
+        Path file = Files.createTempFile("export-", ".pdf");
+        try {
+            gitHubStorageService.downloadToFile(storageShardRouter.resolve(upload.getStorageShard()),
+                                                upload.getGithubPath(), upload.getBlobSha(), file);
+            CRC32 crc = new CRC32();
+            try (InputStream in = new CheckedInputStream(Files.newInputStream(file), crc)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return new Fetched(file, Files.size(file), crc.getValue());
+        } catch (Exception e) {
+            Files.deleteIfExists(file);
+            throw new Exception("Failed to fetch " + upload.getOriginalFileName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void writeStored(ZipOutputStream zip, String name, byte[] content, long time) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        zip.putNextEntry(storedEntry(name, content.length, crc.getValue(), time));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private ZipEntry storedEntry(String name, long size, long crc, long time) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc);
+        entry.setTime(time);
+        return entry;
+    }
+
+    private String entryName(int position, PdfUpload upload) {
+        String student = upload.getUser().getRollNumber() + "-" + upload.getUser().getName();
+        return safe(student) + "/" + String.format("%03d", position) + "-" + safe(upload.getOriginalFileName());
+    }
+
+    private String safe(String name) {
+        return name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]+", "_").trim();
+    }
+
+    private byte[] manifest(List<Entry> entries) {
+        StringBuilder csv = new StringBuilder("file,student,roll_number,email,pages,copies,printed_pages,uploaded_at\n");
+        for (Entry entry : entries) {
+            PdfUpload upload = entry.upload();
+            csv.append(csv(entry.name())).append(',')
+               .append(csv(upload.getUser().getName())).append(',')
+               .append(csv(upload.getUser().getRollNumber())).append(',')
+               .append(csv(upload.getUser().getEmail())).append(',')
+               .append(csv(upload.getPageRanges() != null ? upload.getPageRanges() : "all")).append(',')
+               .append(upload.getCopies()).append(',')
+               .append(upload.getPrintedPages()).append(',')
+               .append(upload.getUploadedAt()).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        boolean quote = value.chars().anyMatch(c -> c == '"' || c == ',' || c == '\n' || c == '\r');
+        return quote ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+
+    private record Entry(String name, PdfUpload upload) {}
+
+    private record Fetched(Path file, long size, long crc) {}
+}
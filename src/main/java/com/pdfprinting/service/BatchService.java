@@ -0,0 +1,156 @@
+package com.pdfprinting.service;
+
+import com.pdfprinting.model.Batch;
+import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.repository.BatchRepository;
+import com.pdfprinting.repository.PdfUploadRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the per-batch counters of the pending queue. Uploads, deletes and merges apply
+ * their change as a single relative UPDATE, in the same transaction as the change to
+ * pdf_uploads; {@link #reconcile()} periodically recomputes the counters from pdf_uploads
+ * to correct any drift. It holds the batch row lock while counting, so every change it
+ * sees has its counter update applied too, and every change it misses is applied after.
+ */
+@Service
+public class BatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchService.class);
+
+    @Autowired
+    private BatchRepository batchRepository;
+
+    @Autowired
+    private PdfUploadRepository pdfUploadRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    public List<Batch> getBatches() {
+        return batchRepository.findAllByOrderByNameAsc();
+    }
+
+    public List<String> getBatchNames() {
+        return getBatches().stream().map(Batch::getName).collect(Collectors.toList());
+    }
+
+    public Batch getBatch(String name) {
+        return batchRepository.findByName(name).orElse(null);
+    }
+
+    public boolean exists(String name) {
+        return batchRepository.existsByName(name);
+    }
+
+    public void setMergeCron(String name, String mergeCron) throws Exception {
+        Batch batch = batchRepository.findByName(name)
+            .orElseThrow(() -> new Exception("Unknown batch: " + name));
+        String cron = mergeCron == null || mergeCron.isBlank() ? null : mergeCron.trim();
+        if (cron != null && !CronExpression.isValidExpression(cron)) {
+            throw new Exception("Invalid cron expression: " + cron);
+        }
+        batch.setMergeCron(cron);
+        batchRepository.save(batch);
+    }
+
+    /**
+     * Locks the batch row for the rest of the current transaction. Uploads and removals take it
+     * before asking whether a student has other pending files, so two of them never both count
+     * the same student as new or as gone; the reconcile takes the same lock.
+     */
+    public void lockCounters(String batch) {
+        batchRepository.lockByName(batch);
+    }
+
+    public void recordUpload(String batch, List<PdfUpload> uploads, boolean newStudent) {
+        if (uploads.isEmpty()) {
+            return;
+        }
+        batchRepository.addPending(batch, uploads.size(), totalBytes(uploads), totalPages(uploads), newStudent ? 1 : 0);
+    }
+
+    public void recordRemoval(String batch, List<PdfUpload> uploads, long studentsRemoved) {
+        if (uploads.isEmpty()) {
+            return;
+        }
+        batchRepository.removePending(batch, uploads.size(), totalBytes(uploads), totalPages(uploads), studentsRemoved);
+    }
+
+    public void recordResize(String batch, long bytesDelta) {
+        if (bytesDelta == 0) {
+            return;
+        }
+        batchRepository.addPending(batch, 0, bytesDelta, 0, 0);
+    }
+
+    public void recordReprint(String batch, long pagesDelta) {
+        if (pagesDelta == 0) {
+            return;
+        }
+        batchRepository.addPending(batch, 0, 0, pagesDelta, 0);
+    }
+
+    @Scheduled(fixedDelayString = "${app.batch.reconcile-ms:600000}")
+    public int reconcile() {
+        // Batches that only exist in pdf_uploads, e.g. from before batches had their own table
+        for (Object[] row : pdfUploadRepository.summarizeByBatch(PdfUpload.Status.PENDING)) {
+            String name = (String) row[0];
+            if (!batchRepository.existsByName(name)) {
+                batchRepository.save(new Batch(name));
+            }
+        }
+        
+        int corrected = 0;
+        for (String name : getBatchNames()) {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(transaction -> reconcile(name)))) {
+                corrected++;
+            }
+        }
+        
+        logger.info("Reconciled batch counters, {} corrected", corrected);
+        return corrected;
+    }
+
+    /** Corrects one batch's counters under its row lock; returns whether they had drifted. */
+    private boolean reconcile(String name) {
+        Batch batch = batchRepository.lockByName(name).orElse(null);
+        if (batch == null) {
+            return false;
+        }
+        // Counted after taking the lock, so it includes every change whose counter update is in
+        Object[] row = pdfUploadRepository.summarizeBatch(name, PdfUpload.Status.PENDING).get(0);
+        long[] counts = new long[] {
+            ((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+            ((Number) row[2]).longValue(), ((Number) row[3]).longValue()
+        };
+        if (batch.getPendingFiles() == counts[0] && batch.getPendingBytes() == counts[1] &&
+            batch.getPendingPages() == counts[2] && batch.getPendingStudents() == counts[3]) {
+            return false;
+        }
+        
+        logger.warn("Batch {} counters drifted: files {} -> {}, bytes {} -> {}, pages {} -> {}, students {} -> {}",
+                    name, batch.getPendingFiles(), counts[0], batch.getPendingBytes(), counts[1],
+                    batch.getPendingPages(), counts[2], batch.getPendingStudents(), counts[3]);
+        batchRepository.setPending(name, counts[0], counts[1], counts[2], counts[3], LocalDateTime.now());
+        return true;
+    }
+
+    private long totalBytes(List<PdfUpload> uploads) {
+        return uploads.stream().mapToLong(PdfUpload::getFileSize).sum();
+    }
+
+    private long totalPages(List<PdfUpload> uploads) {
+        return uploads.stream().mapToLong(PdfUpload::getPrintedPages).sum();
+    }
+}
@@ -0,0 +1,211 @@
+package com.pdfprinting.service;
+
+import com.pdfprinting.model.UploadSession;
+import com.pdfprinting.model.User;
+import com.pdfprinting.repository.UploadSessionRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Resumable uploads: a session owns a spool file, clients send byte ranges that are
+ * written in place with positioned NIO writes, and can ask for the current offset
+ * after a dropped connection. Finalizing hands the spool file to {@link PdfUploadService}.
+ * Sessions are rows in {@code upload_sessions} and the spool directory is shared by the nodes,
+ * so each request of an upload may reach a different node.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+    private static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private PdfUploadService pdfUploadService;
+
+    @Autowired
+    private StorageCircuitBreaker storageCircuitBreaker;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Value("${app.upload.spool-dir:${java.io.tmpdir}/pdf-upload-spool}")
+    private String spoolDir;
+
+    @Value("${app.upload.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    @Value("${app.upload.finalize-lease-minutes:10}")
+    private long finalizeLeaseMinutes;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(Paths.get(spoolDir));
+    }
+
+    /**
+     * Opens a session; the page selection and copy count are checked here and applied when the
+     * session is finalized, as they would be for a direct upload.
+     */
+    public UploadSession createSession(String filename, long size, String batch, String pageRanges, int copies,
+                                       User user) throws Exception {
+        if (filename == null || !filename.toLowerCase().endsWith(".pdf")) {
+            throw new Exception("Only PDF files are allowed");
+        }
+        if (size <= 0 || size > MAX_FILE_SIZE) {
+            throw new Exception("File size must be less than 10MB");
+        }
+        String selection = PageRanges.normalize(pageRanges);
+        pdfUploadService.checkCopies(copies);
+        // Checked again on finalize; this spares sending the file when the batch is already full
+        pdfUploadService.checkPendingQuota(user, batch, 1);
+        storageCircuitBreaker.checkAvailable();
+        
+        String id = UUID.randomUUID().toString();
+        Files.createFile(spoolFile(id));
+        
+        UploadSession session = uploadSessionRepository.save(
+            new UploadSession(id, user.getEmail(), filename, size, batch, selection, copies));
+        
+        logger.info("Created upload session {} for {} ({} bytes)", id, filename, size);
+        return session;
+    }
+
+    /**
+     * Returns the session if it exists and belongs to the given user, otherwise null.
+     */
+    public UploadSession getSession(String id, User user) {
+        UploadSession session = uploadSessionRepository.findById(id).orElse(null);
+        if (session == null || !session.getOwnerEmail().equals(user.getEmail())) {
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * Writes bytes {@code start..end} (inclusive) of the file. The range must start at or before
+     * the current offset, so a client can resend the tail of an interrupted chunk.
+     * Returns the new offset.
+     */
+    public long writeChunk(UploadSession session, long start, long end, InputStream body) throws Exception {
+        if (start > session.getReceived()) {
+            throw new Exception("Chunk starts at " + start + " but only " + session.getReceived() + " bytes were received");
+        }
+        if (end < start || end >= session.getSize()) {
+            throw new Exception("Invalid chunk range " + start + "-" + end + " for " + session.getSize() + " bytes");
+        }
+        if (session.getFinalizingUntil() != null && session.getFinalizingUntil().isAfter(LocalDateTime.now())) {
+            throw new Exception("Upload is being finalized");
+        }
+        
+        long position = start;
+        try (FileChannel channel = FileChannel.open(spoolFile(session.getId()), StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+            byte[] chunk = buffer.array();
+            int read;
+            
+            while (position <= end && (read = body.read(chunk, 0, (int) Math.min(chunk.length, end - position + 1))) != -1) {
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            logger.warn("Spool file of upload session {} not found in {}; is app.upload.spool-dir shared by all nodes?",
+                session.getId(), spoolDir);
+            throw new Exception("Upload session data not found, please start the upload again");
+        }
+        
+        // A short body still counts up to where it stopped, so the client can resume from there.
+        // Ranges may be resent, so overlapping writes carry the same bytes and only the offset needs care
+        if (uploadSessionRepository.recordReceived(session.getId(), position, LocalDateTime.now()) == 0) {
+            throw new Exception("Upload session not found");
+        }
+        session.setReceived(Math.max(session.getReceived(), position));
+        return session.getReceived();
+    }
+
+    public int finalizeSession(UploadSession session, User user) throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        if (uploadSessionRepository.claimFinalize(session.getId(), now, now.plusMinutes(finalizeLeaseMinutes)) == 0) {
+            throw new Exception("Upload is already being finalized");
+        }
+        
+        int uploadedCount;
+        try {
+            // Chunks may have been recorded by other nodes since the session was read
+            UploadSession current = uploadSessionRepository.findById(session.getId())
+                .orElseThrow(() -> new Exception("Upload session not found"));
+            session.setReceived(current.getReceived());
+            if (current.getReceived() != current.getSize()) {
+                throw new Exception("Upload incomplete: " + current.getReceived() + " of " + current.getSize() + " bytes received");
+            }
+            Path spoolFile = spoolFile(current.getId());
+            if (!hasPdfHeader(spoolFile)) {
+                throw new Exception("Only PDF files are allowed");
+            }
+            
+            MultipartFile file = new SpooledMultipartFile(spoolFile, current.getFilename(), current.getSize());
+            uploadedCount = pdfUploadService.uploadPdfs(new MultipartFile[] { file }, current.getBatch(), user,
+                current.getPageRanges(), current.getCopies());
+        } catch (Exception e) {
+            // Storage did not take the file, so a later finalize may try again
+            uploadSessionRepository.releaseFinalize(session.getId());
+            throw e;
+        }
+        
+        // Only drop the spool file once storage succeeded, so a failed finalize can be retried
+        cancelSession(session);
+        return uploadedCount;
+    }
+
+    public void cancelSession(UploadSession session) throws IOException {
+        uploadSessionRepository.deleteSession(session.getId());
+        Files.deleteIfExists(spoolFile(session.getId()));
+    }
+
+    /** Runs on every node; a session another node already removed is simply gone. */
+    @Scheduled(fixedDelayString = "${app.upload.session-cleanup-ms:3600000}")
+    public void removeExpiredSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(sessionTtlHours);
+        
+        for (UploadSession session : uploadSessionRepository.findExpired(cutoff, LocalDateTime.now())) {
+            try {
+                cancelSession(session);
+                logger.info("Removed expired upload session {}", session.getId());
+            } catch (IOException e) {
+                logger.warn("Failed to remove expired upload session {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private Path spoolFile(String id) {
+        return Paths.get(spoolDir, id + ".part");
+    }
+
+    private boolean hasPdfHeader(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] header = in.readNBytes(5);
+            return new String(header, StandardCharsets.US_ASCII).equals("%PDF-");
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.pdfprinting.service;
+
+import com.pdfprinting.model.Batch;
+import com.pdfprinting.model.MergeJob;
+import com.pdfprinting.repository.BatchRepository;
+import com.pdfprinting.repository.MergeJobRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Pushes batch counter changes and merge progress to admin dashboards over Server-Sent Events.
+ * The changes are read from the database, where every node records them with {@code changed_at}
+ * stamps, so a dashboard connected to one node also sees uploads and merges on the others. Each
+ * flush polls the rows changed since the last one, so a burst of uploads to one batch becomes a
+ * single event per interval carrying the latest counters.
+ * <p>
+ * A change can commit a little after rows stamped later, so each poll reaches back
+ * {@code app.dashboard.poll-overlap-ms} and skips rows whose stamp was already sent.
+ */
+@Service
+public class DashboardEventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardEventService.class);
+
+    // Cursor while nothing has changed yet
+    private static final LocalDateTime NEVER = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Autowired
+    private BatchRepository batchRepository;
+
+    @Autowired
+    private MergeJobRepository mergeJobRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.dashboard.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${app.dashboard.push-interval-ms:500}")
+    private long pushIntervalMs;
+
+    @Value("${app.dashboard.poll-overlap-ms:10000}")
+    private long pollOverlapMs;
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    // Poll state, used by the flush thread only. Null cursors start again from the latest change
+    private LocalDateTime batchCursor;
+    private LocalDateTime mergeCursor;
+    private final Map<String, LocalDateTime> sentBatches = new HashMap<>();
+    private final Map<Long, LocalDateTime> sentMerges = new HashMap<>();
+
+    // When this node last wrote the progress of a batch's merge
+    private final Map<String, Long> progressWrittenAt = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("dashboard.subscribers", emitters, List::size)
+            .description("Open dashboard event streams")
+            .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+        return emitter;
+    }
+
+    /**
+     * Records the progress of the running merge of {@code batch} on its job row, at most once per
+     * push interval; the first and the last file are always recorded. The end of the merge is
+     * recorded when the job finishes.
+     */
+    public void mergeProgress(String batch, int processed, int total) {
+        long now = System.currentTimeMillis();
+        Long writtenAt = progressWrittenAt.get(batch);
+        if (processed > 0 && processed < total && writtenAt != null && now - writtenAt < pushIntervalMs) {
+            return;
+        }
+        if (processed >= total) {
+            progressWrittenAt.remove(batch);
+        } else {
+            progressWrittenAt.put(batch, now);
+        }
+        try {
+            mergeJobRepository.recordProgress(batch, MergeJob.Status.RUNNING, processed, total);
+        } catch (RuntimeException e) {
+            // Progress is only shown, never acted on; the merge goes on
+            logger.debug("Failed to record merge progress of {}: {}", batch, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard.push-interval-ms:500}")
+    public void flush() {
+        if (emitters.isEmpty()) {
+            batchCursor = null;
+            mergeCursor = null;
+            sentBatches.clear();
+            sentMerges.clear();
+            return;
+        }
+
+        if (batchCursor == null) {
+            // Dashboards load the current counters with the page; only later changes are pushed
+            batchCursor = Optional.ofNullable(batchRepository.findLastChange()).orElse(NEVER);
+        } else {
+            LocalDateTime since = batchCursor.minusNanos(pollOverlapMs * 1_000_000);
+            sentBatches.values().removeIf(changedAt -> changedAt.isBefore(since));
+            for (Batch batch : batchRepository.findByChangedAtAfter(since)) {
+                if (!batch.getChangedAt().equals(sentBatches.put(batch.getName(), batch.getChangedAt()))) {
+                    send("batch", batchEvent(batch));
+                }
+                if (batch.getChangedAt().isAfter(batchCursor)) {
+                    batchCursor = batch.getChangedAt();
+                }
+            }
+        }
+
+        if (mergeCursor == null) {
+            mergeCursor = Optional.ofNullable(mergeJobRepository.findLastChange()).orElse(NEVER);
+        } else {
+            LocalDateTime since = mergeCursor.minusNanos(pollOverlapMs * 1_000_000);
+            sentMerges.values().removeIf(changedAt -> changedAt.isBefore(since));
+            for (MergeJob job : mergeJobRepository.findByChangedAtAfter(since)) {
+                if (!job.getChangedAt().equals(sentMerges.put(job.getId(), job.getChangedAt()))) {
+                    send("merge", mergeEvent(job));
+                }
+                if (job.getChangedAt().isAfter(mergeCursor)) {
+                    mergeCursor = job.getChangedAt();
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard.heartbeat-ms:15000}")
+    public void heartbeat() {
+        // Comment lines keep idle connections open through proxies and reveal closed clients
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        }
+    }
+
+    private void send(String name, Map<String, Object> data) {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Dropping dashboard subscriber: {}", e.getMessage());
+                emitters.remove(emitter);
+            }
+        }
+    }
+
+    private Map<String, Object> batchEvent(Batch batch) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("batch", batch.getName());
+        event.put("pendingFiles", batch.getPendingFiles());
+        event.put("pendingBytes", batch.getPendingBytes());
+        event.put("pendingPages", batch.getPendingPages());
+        event.put("pendingStudents", batch.getPendingStudents());
+        return event;
+    }
+
+    private Map<String, Object> mergeEvent(MergeJob job) {
+        int total = job.getTotalFiles() != null ? job.getTotalFiles() : 0;
+        int processed = job.getProcessedFiles() != null ? job.getProcessedFiles() : 0;
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("batch", job.getBatch());
+        event.put("state", job.getStatus().name().toLowerCase());
+        event.put("processed", job.getStatus() == MergeJob.Status.COMPLETED ? total : processed);
+        event.put("total", total);
+        return event;
+    }
+}
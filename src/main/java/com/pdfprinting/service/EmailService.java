@@ -1,6 +1,10 @@
 package com.pdfprinting.service;
 
 import com.pdfprinting.model.User;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +18,9 @@ import org.thymeleaf.context.Context;
 
 import jakarta.mail.internet.MimeMessage;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class EmailService {
@@ -21,6 +28,7 @@ public class EmailService {
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
     private static final int MAX_RETRIES = 3;
     private static final long RETRY_DELAY_MS = 2000;
+    private static final int EMAIL_THREADS = 2;
 
     @Autowired
     private JavaMailSender mailSender;
@@ -34,7 +42,35 @@ public class EmailService {
     @Value("${spring.mail.username}")
     private String fromEmail;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Mail is sent off the request thread; callers only enqueue
+    private final ThreadPoolExecutor emailExecutor = new ThreadPoolExecutor(
+        EMAIL_THREADS, EMAIL_THREADS, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+        runnable -> {
+            Thread thread = new Thread(runnable, "email-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("email.queue.size", emailExecutor, executor -> executor.getQueue().size())
+            .description("Emails waiting to be sent")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        emailExecutor.shutdown();
+    }
+
     public void sendVerificationEmail(User user) {
+        emailExecutor.execute(() -> deliverVerificationEmail(user));
+    }
+
+    private void deliverVerificationEmail(User user) {
         Exception lastException = null;
         
         for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
@@ -85,6 +121,10 @@ public class EmailService {
     }
 
     public void sendBatchProcessedNotification(String batchName, int fileCount, List<String> studentEmails) {
+        emailExecutor.execute(() -> deliverBatchProcessedNotification(batchName, fileCount, studentEmails));
+    }
+
+    private void deliverBatchProcessedNotification(String batchName, int fileCount, List<String> studentEmails) {
         try {
             logger.info("Sending batch processed notification for {} with {} files", batchName, fileCount);
             
@@ -115,6 +155,10 @@ public class EmailService {
     }
 
     public void sendWelcomeEmail(User user) {
+        emailExecutor.execute(() -> deliverWelcomeEmail(user));
+    }
+
+    private void deliverWelcomeEmail(User user) {
         try {
             logger.info("Sending welcome email to {}", user.getEmail());
             
@@ -144,6 +188,10 @@ public class EmailService {
     }
 
     public void sendPasswordResetEmail(User user, String resetToken) {
+        emailExecutor.execute(() -> deliverPasswordResetEmail(user, resetToken));
+    }
+
+    private void deliverPasswordResetEmail(User user, String resetToken) {
         try {
             logger.info("Sending password reset email to {}", user.getEmail());
             
@@ -195,6 +243,10 @@ public class EmailService {
     }
 
     public void sendSystemNotification(String subject, String content) {
+        emailExecutor.execute(() -> deliverSystemNotification(subject, content));
+    }
+
+    private void deliverSystemNotification(String subject, String content) {
         try {
             logger.info("Sending system notification: {}", subject);
             
@@ -1,17 +1,44 @@
 package com.pdfprinting.service;
 
+import com.pdfprinting.model.StoredFile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.kohsuke.github.GHCommit;
+import org.kohsuke.github.GHContentUpdateResponse;
+import org.kohsuke.github.GHRef;
 import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GHTree;
+import org.kohsuke.github.GHTreeBuilder;
+import org.kohsuke.github.GHTreeEntry;
 import org.kohsuke.github.GitHub;
 import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.HttpException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class GitHubStorageService {
@@ -19,6 +46,22 @@ public class GitHubStorageService {
     private static final Logger logger = LoggerFactory.getLogger(GitHubStorageService.class);
     private static final int MAX_RETRIES = 3;
     private static final long RETRY_DELAY_MS = 1000;
+    private static final int HTTP_UNPROCESSABLE_ENTITY = 422;
+    private static final String README_PATH = "uploads/README.md";
+    private static final int DELETE_CHUNK_SIZE = 500;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private StoragePathIndex storagePathIndex;
+
+    @Autowired
+    private StorageShardRouter storageShardRouter;
+
+    @Autowired
+    private StorageCircuitBreaker storageCircuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @Value("${github.token}")
     private String githubToken;
@@ -26,6 +69,12 @@ public class GitHubStorageService {
     @Value("${github.repository}")
     private String repositoryName;
 
+    @Value("${github.api-url:https://api.github.com}")
+    private String apiUrl;
+
+    // One client for all calls; it is thread-safe and keeps its connection pool warm
+    private volatile GitHub github;
+
     private GitHub getGitHub() throws IOException {
         if (githubToken == null || githubToken.trim().isEmpty() || githubToken.equals("your-github-token")) {
             throw new IOException("GitHub token is not configured. Please set GITHUB_TOKEN environment variable.");
@@ -35,53 +84,94 @@ public class GitHubStorageService {
             throw new IOException("GitHub repository is not configured. Please set GITHUB_REPOSITORY environment variable.");
         }
         
-        return new GitHubBuilder().withOAuthToken(githubToken).build();
+        GitHub client = github;
+        if (client == null) {
+            synchronized (this) {
+                if (github == null) {
+                    github = new GitHubBuilder().withEndpoint(apiUrl).withOAuthToken(githubToken).build();
+                }
+                client = github;
+            }
+        }
+        return client;
+    }
+
+    public StoredFile uploadFile(String shard, MultipartFile file, String filename, String batch) throws Exception {
+        return uploadContent(shard, file.getBytes(), filename, batch, file.getOriginalFilename());
+    }
+
+    public StoredFile uploadContent(String shard, byte[] fileContent, String filename, String batch,
+                                    String originalFilename) throws Exception {
+        return store(shard, fileContent, "uploads/" + sanitizeBatchName(batch), filename,
+                     "Upload PDF: " + originalFilename + " from " + batch);
+    }
+
+    /**
+     * Stores one part of a merged batch under {@code merged/<batch>/}, apart from the uploads,
+     * so listings and retention of uploaded files never see it.
+     */
+    public StoredFile storeMergedPart(String shard, byte[] content, String batch, String filename) throws Exception {
+        return store(shard, content, "merged/" + sanitizeBatchName(batch), filename, "Store merged PDF: " + filename);
     }
 
-    public String uploadFile(MultipartFile file, String filename, String batch) throws Exception {
+    private StoredFile store(String shard, byte[] fileContent, String directory, String filename,
+                             String message) throws Exception {
         Exception lastException = null;
         
+        // Convert file to base64 once, outside the retry loop
+        String base64Content = Base64.getEncoder().encodeToString(fileContent);
+        
         for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+            Timer.Sample sample = Timer.start(meterRegistry);
             try {
-                logger.info("Attempting to upload file {} to GitHub (attempt {}/{})", filename, attempt, MAX_RETRIES);
-                
-                GitHub github = getGitHub();
-                GHRepository repository = github.getRepository(repositoryName);
-                
-                // Create path: uploads/batch/filename
-                String path = "uploads/" + sanitizeBatchName(batch) + "/" + filename;
-                
-                // Convert file to base64
-                byte[] fileContent = file.getBytes();
-                String base64Content = Base64.getEncoder().encodeToString(fileContent);
-                
-                // Check if file already exists
-                try {
-                    repository.getFileContent(path);
-                    // File exists, create unique name
-                    String baseName = filename.substring(0, filename.lastIndexOf('.'));
-                    String extension = filename.substring(filename.lastIndexOf('.'));
-                    path = "uploads/" + sanitizeBatchName(batch) + "/" + baseName + "_" + System.currentTimeMillis() + extension;
-                    logger.info("File exists, using unique path: {}", path);
-                } catch (Exception e) {
-                    // File doesn't exist, continue with original path
-                }
+                logger.info("Attempting to upload file {} to GitHub {} (attempt {}/{})", filename, shard, attempt, MAX_RETRIES);
                 
-                // Upload to GitHub
-                repository.createContent()
-                    .content(base64Content)
-                    .path(path)
-                    .message("Upload PDF: " + file.getOriginalFilename() + " from " + batch)
-                    .commit();
+                StoredFile storedFile = storageCircuitBreaker.call("upload", () -> {
+                    GitHub github = getGitHub();
+                    GHRepository repository = github.getRepository(shard);
+                    
+                    // Create path: directory/filename
+                    String path = directory + "/" + filename;
+                    
+                    // Check the local index instead of probing GitHub for the path
+                    if (storagePathIndex.contains(shard, path)) {
+                        path = uniquePath(directory, filename);
+                        logger.info("File exists, using unique path: {}", path);
+                    }
+                    
+                    // Upload to GitHub
+                    GHContentUpdateResponse response;
+                    try {
+                        response = createContent(repository, path, base64Content, message);
+                    } catch (HttpException e) {
+                        // 422 means the path exists in the repository but not in our index
+                        if (e.getResponseCode() != HTTP_UNPROCESSABLE_ENTITY) {
+                            throw e;
+                        }
+                        path = uniquePath(directory, filename);
+                        logger.info("File exists, using unique path: {}", path);
+                        response = createContent(repository, path, base64Content, message);
+                    }
+                    
+                    // The contents API stores the base64 text itself, so the blob is that long, not the PDF
+                    return storagePathIndex.record(shard, path, response.getContent().getSha(), base64Content.length());
+                });
                 
-                logger.info("Successfully uploaded file {} to GitHub at path {}", filename, path);
-                return path;
+                logger.info("Successfully uploaded file {} to GitHub {} at path {}", filename, shard, storedFile.getPath());
+                recordCall(sample, "upload", shard, "success");
+                return storedFile;
                 
+            } catch (StorageUnavailableException e) {
+                // No point retrying while the circuit is open
+                recordCall(sample, "upload", shard, "rejected");
+                throw e;
             } catch (Exception e) {
                 lastException = e;
+                recordCall(sample, "upload", shard, "failure");
                 logger.warn("Upload attempt {}/{} failed for file {}: {}", attempt, MAX_RETRIES, filename, e.getMessage());
                 
                 if (attempt < MAX_RETRIES) {
+                    meterRegistry.counter("storage.retries", "operation", "upload").increment();
                     try {
                         Thread.sleep(RETRY_DELAY_MS * attempt); // Exponential backoff
                     } catch (InterruptedException ie) {
@@ -96,35 +186,64 @@ public class GitHubStorageService {
                           (lastException != null ? lastException.getMessage() : "Unknown error"));
     }
 
-    public void deleteFile(String path) throws Exception {
+    private GHContentUpdateResponse createContent(GHRepository repository, String path,
+                                                  String base64Content, String message) throws IOException {
+        return repository.createContent()
+            .content(base64Content)
+            .path(path)
+            .message(message)
+            .commit();
+    }
+
+    private String uniquePath(String directory, String filename) {
+        String baseName = filename.substring(0, filename.lastIndexOf('.'));
+        String extension = filename.substring(filename.lastIndexOf('.'));
+        return directory + "/" + baseName + "_" + System.currentTimeMillis() + extension;
+    }
+
+    public void deleteFile(String shard, String path, String sha) throws Exception {
         Exception lastException = null;
         
         for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+            Timer.Sample sample = Timer.start(meterRegistry);
             try {
-                logger.info("Attempting to delete file {} from GitHub (attempt {}/{})", path, attempt, MAX_RETRIES);
+                logger.info("Attempting to delete file {} from GitHub {} (attempt {}/{})", path, shard, attempt, MAX_RETRIES);
                 
-                GitHub github = getGitHub();
-                GHRepository repository = github.getRepository(repositoryName);
-                
-                // Get file content to get SHA
-                var content = repository.getFileContent(path);
+                storageCircuitBreaker.call("delete", () -> {
+                    GitHub github = getGitHub();
+                    GHRepository repository = github.getRepository(shard);
+                    
+                    // Only fetch the file to learn its SHA when neither the caller nor the index knows it
+                    String blobSha = sha != null ? sha : storagePathIndex.getSha(shard, path);
+                    if (blobSha == null) {
+                        blobSha = repository.getFileContent(path).getSha();
+                    }
+                    
+                    // Delete file
+                    return repository.createContent()
+                        .content("")
+                        .path(path)
+                        .sha(blobSha)
+                        .message("Delete PDF: " + path)
+                        .commit();
+                });
                 
-                // Delete file
-                repository.createContent()
-                    .content("")
-                    .path(path)
-                    .sha(content.getSha())
-                    .message("Delete PDF: " + path)
-                    .commit();
+                storagePathIndex.remove(shard, path);
                 
                 logger.info("Successfully deleted file {} from GitHub", path);
+                recordCall(sample, "delete", shard, "success");
                 return;
                 
+            } catch (StorageUnavailableException e) {
+                recordCall(sample, "delete", shard, "rejected");
+                throw e;
             } catch (Exception e) {
                 lastException = e;
+                recordCall(sample, "delete", shard, "failure");
                 logger.warn("Delete attempt {}/{} failed for file {}: {}", attempt, MAX_RETRIES, path, e.getMessage());
                 
                 if (attempt < MAX_RETRIES) {
+                    meterRegistry.counter("storage.retries", "operation", "delete").increment();
                     try {
                         Thread.sleep(RETRY_DELAY_MS * attempt);
                     } catch (InterruptedException ie) {
@@ -139,27 +258,182 @@ public class GitHubStorageService {
                           (lastException != null ? lastException.getMessage() : "Unknown error"));
     }
 
-    public byte[] downloadFile(String path) throws Exception {
+    /**
+     * Deletes many paths with the Git Data API, one commit per chunk of
+     * {@value #DELETE_CHUNK_SIZE} paths instead of one commit per file. Paths that are
+     * not in the repository count as deleted already.
+     */
+    public void deleteFiles(String shard, Collection<String> paths) throws Exception {
+        List<String> pending = new ArrayList<>(paths);
+        
+        for (int from = 0; from < pending.size(); from += DELETE_CHUNK_SIZE) {
+            List<String> chunk = pending.subList(from, Math.min(from + DELETE_CHUNK_SIZE, pending.size()));
+            deleteChunk(shard, chunk);
+            chunk.forEach(path -> storagePathIndex.remove(shard, path));
+        }
+    }
+
+    /** Returns the paths that exist in the given tree, listing each of their directories once. */
+    private List<String> present(GHRepository repository, String treeSha, List<String> paths) throws IOException {
+        Map<String, Set<String>> namesByDirectory = new HashMap<>();
+        List<String> present = new ArrayList<>();
+        for (String path : paths) {
+            int slash = path.lastIndexOf('/');
+            String directory = slash < 0 ? "" : path.substring(0, slash);
+            Set<String> names = namesByDirectory.get(directory);
+            if (names == null) {
+                names = new HashSet<>();
+                GHTree tree = repository.getTree(treeSha);
+                for (String segment : directory.isEmpty() ? new String[0] : directory.split("/")) {
+                    GHTreeEntry entry = tree != null ? tree.getEntry(segment) : null;
+                    tree = entry != null ? entry.asTree() : null;
+                }
+                if (tree != null) {
+                    for (GHTreeEntry entry : tree.getTree()) {
+                        names.add(entry.getPath());
+                    }
+                }
+                namesByDirectory.put(directory, names);
+            }
+            if (names.contains(path.substring(slash + 1))) {
+                present.add(path);
+            }
+        }
+        return present;
+    }
+
+    private void deleteChunk(String shard, List<String> paths) throws Exception {
         Exception lastException = null;
         
         for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+            Timer.Sample sample = Timer.start(meterRegistry);
             try {
-                logger.info("Attempting to download file {} from GitHub (attempt {}/{})", path, attempt, MAX_RETRIES);
+                logger.info("Attempting to delete {} files from GitHub {} in one commit (attempt {}/{})", 
+                          paths.size(), shard, attempt, MAX_RETRIES);
+                
+                storageCircuitBreaker.call("bulk_delete", () -> {
+                    GitHub github = getGitHub();
+                    GHRepository repository = github.getRepository(shard);
+                    
+                    // Read the branch head, build a tree without the paths and move the branch to a new commit
+                    GHRef ref = repository.getRef("heads/" + repository.getDefaultBranch());
+                    String headSha = ref.getObject().getSha();
+                    String baseTreeSha = repository.getCommit(headSha).getTree().getSha();
+                    
+                    // Deleting a missing path fails the whole tree, so only the ones still there are removed
+                    List<String> present = present(repository, baseTreeSha, paths);
+                    if (present.isEmpty()) {
+                        return null;
+                    }
+                    GHTreeBuilder treeBuilder = repository.createTree().baseTree(baseTreeSha);
+                    for (String path : present) {
+                        treeBuilder.delete(path);
+                    }
+                    GHTree tree = treeBuilder.create();
+                    
+                    GHCommit commit = repository.createCommit()
+                        .message("Delete " + present.size() + " PDFs")
+                        .tree(tree.getSha())
+                        .parent(headSha)
+                        .create();
+                    
+                    // Not forced: a concurrent commit makes this fail and the next attempt rebases on it
+                    ref.updateTo(commit.getSHA1());
+                    return null;
+                });
+                
+                logger.info("Successfully deleted {} files from GitHub", paths.size());
+                recordCall(sample, "bulk_delete", shard, "success");
+                return;
                 
-                GitHub github = getGitHub();
-                GHRepository repository = github.getRepository(repositoryName);
+            } catch (StorageUnavailableException e) {
+                recordCall(sample, "bulk_delete", shard, "rejected");
+                throw e;
+            } catch (Exception e) {
+                lastException = e;
+                recordCall(sample, "bulk_delete", shard, "failure");
+                logger.warn("Bulk delete attempt {}/{} failed for {} files: {}", attempt, MAX_RETRIES, paths.size(), e.getMessage());
+                
+                if (attempt < MAX_RETRIES) {
+                    meterRegistry.counter("storage.retries", "operation", "bulk_delete").increment();
+                    try {
+                        Thread.sleep(RETRY_DELAY_MS * attempt);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new Exception("Delete interrupted", ie);
+                    }
+                }
+            }
+        }
+        
+        throw new Exception("Failed to delete files from GitHub after " + MAX_RETRIES + " attempts: " + 
+                          (lastException != null ? lastException.getMessage() : "Unknown error"));
+    }
+
+    public byte[] downloadFile(String shard, String path, String sha) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        download(shard, path, sha, () -> {
+            buffer.reset();
+            return buffer;
+        });
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Streams a stored file into {@code target} without holding it in memory.
+     * Works for files larger than the 1 MB inline limit of the Contents API.
+     */
+    public void downloadToFile(String shard, String path, String sha, Path target) throws Exception {
+        try {
+            download(shard, path, sha, () -> Files.newOutputStream(target));
+        } catch (Exception e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+    }
+
+    private void download(String shard, String path, String sha, OutputStreamSupplier targetSupplier) throws Exception {
+        Exception lastException = null;
+        
+        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                logger.info("Attempting to download file {} from GitHub {} (attempt {}/{})", path, shard, attempt, MAX_RETRIES);
                 
-                var content = repository.getFileContent(path);
-                byte[] fileBytes = Base64.getDecoder().decode(content.getContent());
+                long size = storageCircuitBreaker.callStreaming("download", responded -> {
+                    GitHub github = getGitHub();
+                    GHRepository repository = github.getRepository(shard);
+                    
+                    // Resolve the blob from the caller or the index; only ask GitHub for metadata as a fallback
+                    StoredFile blob = storagePathIndex.get(shard, path);
+                    if (blob == null || (sha != null && !sha.equals(blob.getSha()))) {
+                        var content = repository.getFileContent(path);
+                        blob = new StoredFile(shard, path, content.getSha(), content.getSize());
+                    }
+                    
+                    // Raw blob endpoint streams the stored base64 text, which is decoded chunk by chunk
+                    try (InputStream in = repository.readBlob(blob.getSha());
+                         OutputStream out = targetSupplier.open()) {
+                        // Streaming a large file takes as long as it takes; only the wait for the answer is judged
+                        responded.run();
+                        return copyVerified(in, out, blob);
+                    }
+                });
                 
-                logger.info("Successfully downloaded file {} from GitHub ({} bytes)", path, fileBytes.length);
-                return fileBytes;
+                logger.info("Successfully downloaded file {} from GitHub ({} bytes)", path, size);
+                recordCall(sample, "download", shard, "success");
+                return;
                 
+            } catch (StorageUnavailableException e) {
+                recordCall(sample, "download", shard, "rejected");
+                throw e;
             } catch (Exception e) {
                 lastException = e;
+                recordCall(sample, "download", shard, "failure");
                 logger.warn("Download attempt {}/{} failed for file {}: {}", attempt, MAX_RETRIES, path, e.getMessage());
                 
                 if (attempt < MAX_RETRIES) {
+                    meterRegistry.counter("storage.retries", "operation", "download").increment();
                     try {
                         Thread.sleep(RETRY_DELAY_MS * attempt);
                     } catch (InterruptedException ie) {
@@ -174,31 +448,82 @@ public class GitHubStorageService {
                           (lastException != null ? lastException.getMessage() : "Unknown error"));
     }
 
+    /**
+     * Decodes the stored base64 blob into the target and checks the stored bytes against
+     * their git object id, which is the SHA-1 of {@code "blob <size>\0"} followed by the content.
+     */
+    private long copyVerified(InputStream in, OutputStream out, StoredFile blob) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 is not available", e);
+        }
+        digest.update(("blob " + blob.getSize() + "\0").getBytes(StandardCharsets.US_ASCII));
+        
+        DigestInputStream stored = new DigestInputStream(in, digest);
+        InputStream decoded = Base64.getMimeDecoder().wrap(stored);
+        byte[] chunk = new byte[COPY_BUFFER_SIZE];
+        long size = 0;
+        int read;
+        while ((read = decoded.read(chunk)) != -1) {
+            out.write(chunk, 0, read);
+            size += read;
+        }
+        // The decoder stops at padding; hash whatever trails it so the digest covers the whole blob
+        stored.transferTo(OutputStream.nullOutputStream());
+        
+        // The size is part of the hashed header, so a length mismatch also fails here
+        String actualSha = HexFormat.of().formatHex(digest.digest());
+        if (!actualSha.equals(blob.getSha())) {
+            throw new IOException("Checksum mismatch for " + blob.getPath() + ": expected " + blob.getSha() + 
+                                ", got " + actualSha);
+        }
+        return size;
+    }
+
+    private void recordCall(Timer.Sample sample, String operation, String shard, String outcome) {
+        sample.stop(Timer.builder("storage.call")
+            .description("Latency of a single remote storage call attempt")
+            .tag("operation", operation)
+            .tag("shard", shard)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry));
+    }
+
+    @FunctionalInterface
+    private interface OutputStreamSupplier {
+        OutputStream open() throws IOException;
+    }
+
     public List<String> listBatchFiles(String batch) throws Exception {
         try {
             logger.info("Listing files for batch: {}", batch);
             
             GitHub github = getGitHub();
-            GHRepository repository = github.getRepository(repositoryName);
-            
             String batchPath = "uploads/" + sanitizeBatchName(batch);
+            List<String> filePaths = new ArrayList<>();
             
-            try {
-                var contents = repository.getDirectoryContent(batchPath);
-                List<String> filePaths = contents.stream()
-                    .filter(content -> content.isFile())
-                    .map(content -> content.getPath())
-                    .toList();
-                
-                logger.info("Found {} files in batch {}", filePaths.size(), batch);
-                return filePaths;
+            for (String shard : storageShardRouter.getShards()) {
+                GHRepository repository = github.getRepository(shard);
                 
-            } catch (Exception e) {
-                // Directory doesn't exist or is empty
-                logger.info("No files found for batch {} (directory may not exist)", batch);
-                return List.of();
+                try {
+                    var contents = repository.getDirectoryContent(batchPath);
+                    contents.stream()
+                        .filter(content -> content.isFile())
+                        .map(content -> content.getPath())
+                        .forEach(filePaths::add);
+                    
+                } catch (Exception e) {
+                    // Directory doesn't exist or is empty
+                    logger.info("No files found for batch {} in {} (directory may not exist)", batch, shard);
+                }
             }
             
+            logger.info("Found {} files in batch {}", filePaths.size(), batch);
+            return filePaths;
+            
         } catch (Exception e) {
             throw new Exception("Failed to list files for batch " + batch + ": " + e.getMessage());
         }
@@ -207,13 +532,16 @@ public class GitHubStorageService {
     public boolean testConnection() {
         try {
             GitHub github = getGitHub();
-            GHRepository repository = github.getRepository(repositoryName);
             
-            // Try to access repository info
-            String repoName = repository.getName();
-            String ownerLogin = repository.getOwner().getLogin();
-            
-            logger.info("Successfully connected to GitHub repository: {}/{}", ownerLogin, repoName);
+            for (String shard : storageShardRouter.getShards()) {
+                GHRepository repository = github.getRepository(shard);
+                
+                // Try to access repository info
+                String repoName = repository.getName();
+                String ownerLogin = repository.getOwner().getLogin();
+                
+                logger.info("Successfully connected to GitHub repository: {}/{}", ownerLogin, repoName);
+            }
             return true;
             
         } catch (Exception e) {
@@ -227,7 +555,6 @@ public class GitHubStorageService {
             logger.info("Initializing GitHub repository structure");
             
             GitHub github = getGitHub();
-            GHRepository repository = github.getRepository(repositoryName);
             
             // Create uploads directory with README
             String readmeContent = "# PDF Printing System - File Storage\n\n" +
@@ -238,20 +565,30 @@ public class GitHubStorageService {
                                  "- etc.\n\n" +
                                  "Files are automatically managed by the PDF Printing System.";
             
-            try {
-                repository.createContent()
-                    .content(Base64.getEncoder().encodeToString(readmeContent.getBytes()))
-                    .path("uploads/README.md")
-                    .message("Initialize PDF Printing System file storage")
-                    .commit();
-                
-                logger.info("Successfully initialized repository structure");
+            for (String shard : storageShardRouter.getShards()) {
+                // Recorded in the path index once created, so later starts make no call at all
+                if (storagePathIndex.contains(shard, README_PATH)) {
+                    continue;
+                }
+                GHRepository repository = github.getRepository(shard);
                 
-            } catch (Exception e) {
-                if (e.getMessage().contains("already exists")) {
-                    logger.info("Repository structure already exists");
-                } else {
-                    throw e;
+                try {
+                    GHContentUpdateResponse response = repository.createContent()
+                        .content(Base64.getEncoder().encodeToString(readmeContent.getBytes()))
+                        .path(README_PATH)
+                        .message("Initialize PDF Printing System file storage")
+                        .commit();
+                    storagePathIndex.record(shard, README_PATH, response.getContent().getSha(), response.getContent().getSize());
+                    
+                    logger.info("Successfully initialized repository structure in {}", shard);
+                    
+                } catch (HttpException e) {
+                    if (e.getResponseCode() != HTTP_UNPROCESSABLE_ENTITY) {
+                        throw e;
+                    }
+                    var existing = repository.getFileContent(README_PATH);
+                    storagePathIndex.record(shard, README_PATH, existing.getSha(), existing.getSize());
+                    logger.info("Repository structure already exists in {}", shard);
                 }
             }
             
@@ -271,13 +608,18 @@ public class GitHubStorageService {
     public String getRepositoryInfo() {
         try {
             GitHub github = getGitHub();
-            GHRepository repository = github.getRepository(repositoryName);
+            List<String> infos = new ArrayList<>();
             
-            return String.format("Repository: %s/%s | Private: %s | Size: %d KB", 
-                repository.getOwner().getLogin(),
-                repository.getName(),
-                repository.isPrivate(),
-                repository.getSize());
+            for (String shard : storageShardRouter.getShards()) {
+                GHRepository repository = github.getRepository(shard);
+                
+                infos.add(String.format("Repository: %s/%s | Private: %s | Size: %d KB", 
+                    repository.getOwner().getLogin(),
+                    repository.getName(),
+                    repository.isPrivate(),
+                    repository.getSize()));
+            }
+            return String.join("; ", infos);
                 
         } catch (Exception e) {
             return "Repository information unavailable: " + e.getMessage();
@@ -0,0 +1,13 @@
+package com.pdfprinting.service;
+
+/**
+ * Thrown when an operation could not get its share of the in-flight memory budget in time.
+ */
+public class MemoryBudgetExceededException extends ServiceUnavailableException {
+
+    private static final long serialVersionUID = 1L;
+
+    public MemoryBudgetExceededException(String message, long retryAfterSeconds) {
+        super(message, retryAfterSeconds);
+    }
+}
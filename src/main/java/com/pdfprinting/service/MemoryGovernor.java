@@ -0,0 +1,103 @@
+package com.pdfprinting.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Node-wide budget for data held in memory by uploads, merges, optimization and rebalancing.
+ * Each operation takes a weight in bytes from a fair semaphore (counted in KiB) before it
+ * buffers anything and returns it when done; when the budget is used up it waits, and gives
+ * up with {@link MemoryBudgetExceededException} after its wait time.
+ * <p>
+ * An operation takes one permit for all of its buffers and never nests a second acquire,
+ * so two operations can never hold part of the budget while waiting for each other.
+ */
+@Service
+public class MemoryGovernor {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.memory.in-flight-mb:256}")
+    private int budgetMb;
+
+    // Requests are shed quickly; merges and background jobs can afford to queue
+    @Value("${app.memory.request-wait-ms:2000}")
+    private long requestWaitMs;
+
+    @Value("${app.memory.background-wait-ms:120000}")
+    private long backgroundWaitMs;
+
+    @Value("${app.memory.retry-after-seconds:5}")
+    private long retryAfterSeconds;
+
+    private Semaphore permits;
+    private int totalKb;
+
+    @PostConstruct
+    public void init() {
+        totalKb = budgetMb * 1024;
+        permits = new Semaphore(totalKb, true);
+
+        Gauge.builder("memory.in-flight.bytes", this, governor -> governor.usedKb() * 1024.0)
+            .description("Bytes currently reserved by uploads, merges and downloads")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("memory.in-flight.limit", this, governor -> governor.totalKb * 1024.0)
+            .description("In-flight memory budget")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    public Permit acquire(String operation, long bytes) throws MemoryBudgetExceededException {
+        return acquire(operation, bytes, requestWaitMs);
+    }
+
+    public Permit acquireWaiting(String operation, long bytes) throws MemoryBudgetExceededException {
+        return acquire(operation, bytes, backgroundWaitMs);
+    }
+
+    private Permit acquire(String operation, long bytes, long waitMs) throws MemoryBudgetExceededException {
+        // Anything larger than the whole budget runs alone rather than never
+        int kb = (int) Math.min(totalKb, Math.max(1, (bytes + 1023) / 1024));
+        try {
+            if (!permits.tryAcquire(kb, waitMs, TimeUnit.MILLISECONDS)) {
+                meterRegistry.counter("memory.admission", "operation", operation, "result", "rejected").increment();
+                throw new MemoryBudgetExceededException("Server is busy, please try again shortly", retryAfterSeconds);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MemoryBudgetExceededException("Interrupted while waiting for memory", retryAfterSeconds);
+        }
+        meterRegistry.counter("memory.admission", "operation", operation, "result", "admitted").increment();
+        return new Permit(kb);
+    }
+
+    private long usedKb() {
+        return totalKb - permits.availablePermits();
+    }
+
+    public final class Permit implements AutoCloseable {
+        private final int kb;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int kb) {
+            this.kb = kb;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                permits.release(kb);
+            }
+        }
+    }
+}
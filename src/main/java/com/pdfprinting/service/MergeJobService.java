@@ -0,0 +1,337 @@
+package com.pdfprinting.service;
+
+import com.pdfprinting.model.MergeJob;
+import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.repository.BatchRepository;
+import com.pdfprinting.repository.MergeJobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs merges from the merge_jobs table on a pool of {@code app.merge.workers} threads per node.
+ * Jobs are claimed with {@code FOR UPDATE SKIP LOCKED}, so nodes polling at the same time take
+ * different jobs, and the batch row is locked while claiming, so a batch is never merged by two
+ * nodes at once. A claimed job carries a lease that this node renews every heartbeat, on a
+ * thread of its own so that no other scheduled task can hold it up; when a node dies its jobs'
+ * leases run out and another node claims them again. A node only publishes a merge in the same
+ * transaction that completes a job it still holds, so a node that lost its lease publishes
+ * nothing. A job that was claimed {@code app.merge.max-attempts} times without finishing is
+ * marked failed. A job that finds storage or memory unavailable is not failed but queued again,
+ * first after {@code app.merge.retry-delay-seconds} and twice as long each further time.
+ */
+@Service
+public class MergeJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MergeJobService.class);
+
+    @Autowired
+    private MergeJobRepository mergeJobRepository;
+
+    @Autowired
+    private BatchRepository batchRepository;
+
+    @Autowired
+    private PdfUploadService pdfUploadService;
+
+    @Autowired
+    private PdfMergeService pdfMergeService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private StorageCircuitBreaker storageCircuitBreaker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.merge.workers:2}")
+    private int workers;
+
+    @Value("${app.merge.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    @Value("${app.merge.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${app.merge.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.merge.retry-delay-seconds:15}")
+    private long retryDelaySeconds;
+
+    @Value("${app.merge.max-retry-delay-seconds:900}")
+    private long maxRetryDelaySeconds;
+
+    // Empty means process id and host name
+    @Value("${app.node-id:}")
+    private String nodeId;
+
+    private ExecutorService executor;
+    private final ThreadPoolTaskScheduler heartbeatScheduler = new ThreadPoolTaskScheduler();
+    private Semaphore idleWorkers;
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        if (nodeId.isBlank()) {
+            nodeId = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        idleWorkers = new Semaphore(workers);
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "merge-worker-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeatScheduler.setPoolSize(1);
+        heartbeatScheduler.setThreadNamePrefix("merge-heartbeat-");
+        heartbeatScheduler.setDaemon(true);
+        heartbeatScheduler.initialize();
+        heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat, Duration.ofMillis(heartbeatMs));
+        meterRegistry.gauge("merge.jobs.running", running, Set::size);
+        logger.info("Merge worker {} with {} threads", nodeId, workers);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        heartbeatScheduler.shutdown();
+        // Back to the queue now rather than when the lease runs out
+        int released = mergeJobRepository.release(nodeId, MergeJob.Status.RUNNING, MergeJob.Status.QUEUED);
+        if (released > 0) {
+            logger.info("Released {} unfinished merge jobs", released);
+        }
+    }
+
+    /**
+     * Queues a merge of everything the batch has received so far. While a job of the batch is
+     * still waiting, that job is moved up to now instead of queuing another one.
+     */
+    public MergeJob enqueue(String batch, String requestedBy) {
+        LocalDateTime now = LocalDateTime.now();
+        Optional<MergeJob> queued = mergeJobRepository.findFirstByBatchAndStatusOrderByCreatedAtAsc(batch, MergeJob.Status.QUEUED);
+        if (queued.isPresent()) {
+            MergeJob job = queued.get();
+            job.setCutoff(now);
+            job.setNotBefore(null);
+            return mergeJobRepository.save(job);
+        }
+        return mergeJobRepository.save(new MergeJob(batch, now, requestedBy, null));
+    }
+
+    /**
+     * Queues a scheduled merge of the uploads received up to {@code cutoff}. Returns null when the
+     * cutoff is already queued, which happens on every node but the first to get there.
+     */
+    public MergeJob enqueueScheduled(String batch, LocalDateTime cutoff) {
+        try {
+            return mergeJobRepository.save(new MergeJob(batch, cutoff, "schedule", "schedule:" + batch + ":" + cutoff));
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    public MergeJob getLatestJob(String batch) {
+        return mergeJobRepository.findFirstByBatchOrderByCreatedAtDescIdDesc(batch).orElse(null);
+    }
+
+    @Scheduled(fixedDelayString = "${app.merge.poll-ms:1000}")
+    public void claimJobs() {
+        while (idleWorkers.tryAcquire()) {
+            MergeJob job;
+            try {
+                job = claim();
+            } catch (Exception e) {
+                idleWorkers.release();
+                logger.warn("Failed to claim a merge job: {}", e.getMessage());
+                return;
+            }
+            if (job == null) {
+                idleWorkers.release();
+                return;
+            }
+
+            running.add(job.getId());
+            executor.execute(() -> {
+                try {
+                    storageCircuitBreaker.inBackground(() -> run(job));
+                } finally {
+                    running.remove(job.getId());
+                    idleWorkers.release();
+                }
+            });
+        }
+    }
+
+    private void heartbeat() {
+        List<Long> ids = List.copyOf(running);
+        if (ids.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int renewed = mergeJobRepository.renewLeases(ids, nodeId, MergeJob.Status.RUNNING,
+                                                     now, now.plusSeconds(leaseSeconds));
+        if (renewed < ids.size()) {
+            // Finished meanwhile, or another node took over after a missed lease; then its result is the one that counts
+            logger.debug("Renewed the lease on {} of {} running merge jobs", renewed, ids.size());
+        }
+    }
+
+    private MergeJob claim() {
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            Claim claim = transactionTemplate.execute(status -> {
+                MergeJob job = mergeJobRepository.lockNextClaimable(now).orElse(null);
+                if (job == null) {
+                    return null;
+                }
+                // Serializes claims of the same batch; the check below then sees any claim committed before ours
+                batchRepository.lockByName(job.getBatch());
+                if (mergeJobRepository.existsByBatchAndStatusAndLeaseUntilAfterAndIdNot(
+                        job.getBatch(), MergeJob.Status.RUNNING, now, job.getId())) {
+                    return null;
+                }
+
+                if (job.getAttempts() >= maxAttempts) {
+                    job.setStatus(MergeJob.Status.FAILED);
+                    job.setFinishedAt(now);
+                    job.setLeaseUntil(null);
+                    job.setError("Not finished after " + job.getAttempts() + " attempts");
+                    mergeJobRepository.save(job);
+                    return new Claim(job, false);
+                }
+
+                if (job.getStatus() == MergeJob.Status.RUNNING) {
+                    logger.warn("Merge job {} of {} was abandoned by {}, claiming it again",
+                                job.getId(), job.getBatch(), job.getClaimedBy());
+                }
+                job.setStatus(MergeJob.Status.RUNNING);
+                job.setClaimedBy(nodeId);
+                job.setAttempts(job.getAttempts() + 1);
+                job.setStartedAt(now);
+                job.setHeartbeatAt(now);
+                job.setLeaseUntil(now.plusSeconds(leaseSeconds));
+                return new Claim(mergeJobRepository.save(job), true);
+            });
+
+            if (claim == null) {
+                return null;
+            }
+            if (claim.claimed()) {
+                return claim.job();
+            }
+            logger.error("Merge job {} of {} gave up after {} attempts", claim.job().getId(), claim.job().getBatch(),
+                         claim.job().getAttempts());
+            result("abandoned");
+        }
+    }
+
+    private void run(MergeJob job) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String batch = job.getBatch();
+        try {
+            // The snapshot is taken now, so a job that is claimed again merges the same uploads
+            List<PdfUpload> uploads = pdfUploadService.getBatchUploads(batch, job.getCutoff());
+            if (uploads.isEmpty()) {
+                logger.info("Merge job {}: no uploads in {} up to {}", job.getId(), batch, job.getCutoff());
+                finish(job, MergeJob.Status.COMPLETED, 0, 0, null);
+                return;
+            }
+
+            // Completing the job, switching the batch to the new merge and marking the snapshot
+            // processed commit together, and only while this node still holds the job
+            MergedPdf mergedPdf = pdfMergeService.mergeBatchPdfs(batch, uploads, merged -> {
+                if (mergeJobRepository.finish(job.getId(), nodeId, MergeJob.Status.RUNNING, MergeJob.Status.COMPLETED,
+                                              LocalDateTime.now(), uploads.size(), merged.getPageCount(), null) == 0) {
+                    return false;
+                }
+                pdfUploadService.clearBatchUploads(batch, uploads);
+                return true;
+            });
+            if (mergedPdf == null) {
+                superseded(job);
+                return;
+            }
+            result("completed");
+            logger.info("Merge job {}: merged {} PDFs ({} pages) of {} in {}", job.getId(), uploads.size(),
+                        mergedPdf.getPageCount(), batch, Duration.between(job.getStartedAt(), LocalDateTime.now()));
+
+        } catch (ServiceUnavailableException e) {
+            defer(job, e);
+        } catch (Exception e) {
+            if (executor.isShutdown()) {
+                // Interrupted by shutdown; the job goes back to the queue for another node
+                logger.info("Merge job {} of {} interrupted by shutdown", job.getId(), batch);
+                return;
+            }
+            logger.error("Merge job {} of {} failed: {}", job.getId(), batch, e.getMessage());
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            finish(job, MergeJob.Status.FAILED, null, null, error.length() > 1000 ? error.substring(0, 1000) : error);
+        } finally {
+            sample.stop(Timer.builder("merge.job")
+                .description("Time from claiming a merge job to finishing it")
+                .register(meterRegistry));
+        }
+    }
+
+    private void finish(MergeJob job, MergeJob.Status status, Integer files, Integer pages, String error) {
+        int updated = mergeJobRepository.finish(job.getId(), nodeId, MergeJob.Status.RUNNING, status,
+                                                LocalDateTime.now(), files, pages, error);
+        if (updated == 0) {
+            superseded(job);
+            return;
+        }
+        result(status == MergeJob.Status.COMPLETED ? "completed" : "failed");
+    }
+
+    /** Queues the job again for later; storage being down or memory short is no fault of the job. */
+    private void defer(MergeJob job, ServiceUnavailableException e) {
+        long backoff = Math.min(maxRetryDelaySeconds, retryDelaySeconds << Math.min(job.getDeferrals(), 20));
+        LocalDateTime notBefore = LocalDateTime.now().plusSeconds(Math.max(e.getRetryAfterSeconds(), backoff));
+        if (mergeJobRepository.defer(job.getId(), nodeId, MergeJob.Status.RUNNING, MergeJob.Status.QUEUED,
+                                     notBefore, e.getMessage()) == 0) {
+            superseded(job);
+            return;
+        }
+        logger.warn("Merge job {} of {} deferred until {}: {}", job.getId(), job.getBatch(), notBefore, e.getMessage());
+        result("deferred");
+    }
+
+    private void superseded(MergeJob job) {
+        logger.warn("Merge job {} of {} was taken over by another node before it finished here",
+                    job.getId(), job.getBatch());
+        result("superseded");
+    }
+
+    private void result(String outcome) {
+        meterRegistry.counter("merge.jobs", "result", outcome).increment();
+    }
+
+    private record Claim(MergeJob job, boolean claimed) {}
+}
@@ -0,0 +1,32 @@
+package com.pdfprinting.service;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * A merged batch written to disk, with the SHA-256 of its content used as the download ETag.
+ */
+public class MergedPdf {
+    private final String batchName;
+    private final Path path;
+    private final String sha256;
+    private final long size;
+    private final int pageCount;
+    private final Instant createdAt;
+
+    public MergedPdf(String batchName, Path path, String sha256, long size, int pageCount, Instant createdAt) {
+        this.batchName = batchName;
+        this.path = path;
+        this.sha256 = sha256;
+        this.size = size;
+        this.pageCount = pageCount;
+        this.createdAt = createdAt;
+    }
+
+    public String getBatchName() { return batchName; }
+    public Path getPath() { return path; }
+    public String getSha256() { return sha256; }
+    public long getSize() { return size; }
+    public int getPageCount() { return pageCount; }
+    public Instant getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,61 @@
+package com.pdfprinting.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Page selections as students enter them, e.g. {@code 1-3,5,8-}: single pages, closed ranges
+ * and ranges running to the last page, printed in the order given. No selection means every page.
+ */
+final class PageRanges {
+
+    static final int MAX_LENGTH = 200;
+
+    private PageRanges() {
+    }
+
+    /** Checks the syntax and returns the selection without spaces, or null for every page. */
+    static String normalize(String spec) throws Exception {
+        if (spec == null || spec.isBlank()) {
+            return null;
+        }
+        String normalized = spec.replaceAll("\\s+", "");
+        if (normalized.length() > MAX_LENGTH) {
+            throw new Exception("Page selection must be at most " + MAX_LENGTH + " characters");
+        }
+        for (String range : normalized.split(",", -1)) {
+            if (!range.matches("[1-9]\\d{0,4}(-([1-9]\\d{0,4})?)?")) {
+                throw new Exception("Invalid page selection \"" + spec.trim() + "\", use e.g. 1-3,5,8-");
+            }
+            int dash = range.indexOf('-');
+            if (dash > 0 && dash < range.length() - 1 &&
+                Integer.parseInt(range.substring(dash + 1)) < Integer.parseInt(range.substring(0, dash))) {
+                throw new Exception("Invalid page range " + range);
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * Returns the selected page numbers of a document with {@code pageCount} pages. Pages past
+     * the end are left out, so the result can be empty. The selection must be normalized.
+     */
+    static List<Integer> select(String spec, int pageCount) {
+        List<Integer> pages = new ArrayList<>();
+        if (spec == null) {
+            for (int page = 1; page <= pageCount; page++) {
+                pages.add(page);
+            }
+            return pages;
+        }
+        for (String range : spec.split(",")) {
+            int dash = range.indexOf('-');
+            int first = Integer.parseInt(dash < 0 ? range : range.substring(0, dash));
+            int last = dash < 0 ? first : dash == range.length() - 1 ? pageCount : Integer.parseInt(range.substring(dash + 1));
+            for (int page = first; page <= Math.min(last, pageCount); page++) {
+                pages.add(page);
+            }
+        }
+        return pages;
+    }
+}
@@ -4,85 +4,447 @@ import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfReader;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.kernel.utils.PdfMerger;
+import com.pdfprinting.model.MergedArtifact;
 import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.model.StoredFile;
+import com.pdfprinting.repository.MergedArtifactRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
+/**
+ * Merges a batch into one PDF and shares it through the blob store and the merged_pdfs table,
+ * so the node that merged and the node that serves the download need not be the same.
+ * Each node keeps the files it has written or fetched in {@code app.merge.output-dir} as a cache.
+ */
 @Service
 public class PdfMergeService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PdfMergeService.class);
+
     @Autowired
     private PdfUploadService pdfUploadService;
 
     @Autowired
     private GitHubStorageService gitHubStorageService;
 
-    // Temporary storage for merged PDFs (in production, use Redis or database)
-    private Map<String, byte[]> mergedPdfCache = new HashMap<>();
+    @Autowired
+    private StorageShardRouter storageShardRouter;
 
-    public byte[] mergeBatchPdfs(String batchName) throws Exception {
-        List<PdfUpload> uploads = pdfUploadService.getBatchUploads(batchName);
-        
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DashboardEventService dashboardEventService;
+
+    @Autowired
+    private MemoryGovernor memoryGovernor;
+
+    @Autowired
+    private MergedArtifactRepository mergedArtifactRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.merge.output-dir:${java.io.tmpdir}/pdf-merged}")
+    private String outputDir;
+
+    // Below the 100 MB file limit of the GitHub API, counting the base64 overhead
+    @Value("${app.merge.part-size-mb:40}")
+    private int partSizeMb;
+
+    // Linearizing needs qpdf; without it the merged file is kept as iText wrote it
+    @Value("${app.merge.linearize:false}")
+    private boolean linearize;
+
+    @Value("${app.merge.qpdf-path:qpdf}")
+    private String qpdfPath;
+
+    @Value("${app.merge.linearize-timeout-seconds:300}")
+    private long linearizeTimeoutSeconds;
+
+    // One fetch per batch at a time on this node; others wait and then find the file cached
+    private final Map<String, Object> fetchLocks = new ConcurrentHashMap<>();
+
+    public MergedPdf mergeBatchPdfs(String batchName) throws Exception {
+        return mergeBatchPdfs(batchName, pdfUploadService.getBatchUploads(batchName));
+    }
+
+    public MergedPdf mergeBatchPdfs(String batchName, List<PdfUpload> uploads) throws Exception {
+        return mergeBatchPdfs(batchName, uploads, mergedPdf -> true);
+    }
+
+    /**
+     * Merges and stores the uploads, then points the batch at the new merge in a transaction
+     * that first runs {@code publish}. When that returns false nothing is published, the stored
+     * parts are deleted again and null is returned.
+     */
+    public MergedPdf mergeBatchPdfs(String batchName, List<PdfUpload> uploads, Predicate<MergedPdf> publish) throws Exception {
         if (uploads.isEmpty()) {
             throw new Exception("No PDFs found for batch: " + batchName);
         }
 
-        ByteArrayOutputStream mergedOutputStream = new ByteArrayOutputStream();
-        PdfDocument mergedDocument = new PdfDocument(new PdfWriter(mergedOutputStream));
+        MergedPdf mergedPdf = merge(batchName, uploads);
+
+        // Storing takes permits of its own, per part
+        String shard = storageShardRouter.shardFor(batchName);
+        List<MergedArtifact.Part> parts;
+        Replaced replaced;
+        try {
+            parts = store(mergedPdf, shard);
+        } catch (Exception e) {
+            Files.deleteIfExists(mergedPdf.getPath());
+            if (e instanceof ServiceUnavailableException) {
+                // Kept as is, so the merge job can tell a temporary shortage from a failure
+                throw e;
+            }
+            throw new Exception("Failed to store merged PDF: " + e.getMessage());
+        }
+        try {
+            replaced = transactionTemplate.execute(status -> publish.test(mergedPdf) ? point(mergedPdf, shard, parts) : null);
+        } catch (RuntimeException e) {
+            deleteParts(shard, parts);
+            Files.deleteIfExists(mergedPdf.getPath());
+            throw new Exception("Failed to publish merged PDF: " + e.getMessage());
+        }
+        if (replaced == null) {
+            deleteParts(shard, parts);
+            Files.deleteIfExists(mergedPdf.getPath());
+            return null;
+        }
+
+        deleteParts(replaced.shard(), replaced.parts());
+        evictLocal(batchName, mergedPdf.getPath());
+        return mergedPdf;
+    }
+
+    private MergedPdf merge(String batchName, List<PdfUpload> uploads) throws Exception {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Path directory = Files.createDirectories(Path.of(outputDir));
+        Path partFile = Files.createTempFile(directory, "merge-", ".pdf.part");
+        
+        // Hash while writing so the ETag costs no second pass over the file
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        PdfDocument mergedDocument = new PdfDocument(new PdfWriter(
+            new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(partFile)), digest)));
         PdfMerger merger = new PdfMerger(mergedDocument);
+        int processed = 0;
+        dashboardEventService.mergeProgress(batchName, processed, uploads.size());
 
         try {
             for (PdfUpload upload : uploads) {
+                Path sourceFile = null;
                 try {
-                    // Download PDF from GitHub
-                    byte[] pdfBytes = gitHubStorageService.downloadFile(upload.getGithubPath());
-                    
-                    // Create PDF document from bytes
-                    ByteArrayInputStream inputStream = new ByteArrayInputStream(pdfBytes);
-                    PdfDocument sourceDocument = new PdfDocument(new PdfReader(inputStream));
+                    // Stream PDF from GitHub to a temp file instead of holding it in memory
+                    sourceFile = Files.createTempFile("merge-source-", ".pdf");
+                    gitHubStorageService.downloadToFile(storageShardRouter.resolve(upload.getStorageShard()),
+                                                        upload.getGithubPath(), upload.getBlobSha(), sourceFile);
                     
-                    // Merge all pages from source document
-                    merger.merge(sourceDocument, 1, sourceDocument.getNumberOfPages());
-                    
-                    sourceDocument.close();
-                    inputStream.close();
+                    // The source objects read and their copies, held until they are flushed to the file
+                    try (MemoryGovernor.Permit permit = memoryGovernor.acquireWaiting("merge", upload.getFileSize() * 2);
+                         PdfDocument sourceDocument = new PdfDocument(new PdfReader(sourceFile.toString()))) {
+                        // Selected pages, repeated per copy so the copies come out collated
+                        List<Integer> pages = PageRanges.select(upload.getPageRanges(), sourceDocument.getNumberOfPages());
+                        List<Integer> printed = new ArrayList<>(pages.size() * upload.getCopies());
+                        for (int copy = 0; copy < upload.getCopies(); copy++) {
+                            printed.addAll(pages);
+                        }
+                        // iText copies each source object into the merged document once, so repeated pages
+                        // only add a page dictionary that shares the content streams and resources
+                        merger.merge(sourceDocument, printed);
+                        // Writes the copies out now instead of keeping them in memory until the merge is closed;
+                        // only the small page dictionaries stay
+                        mergedDocument.flushCopiedObjects(sourceDocument);
+                    }
                     
+                } catch (ServiceUnavailableException e) {
+                    // Storage down or memory short: skipping the files would complete an incomplete merge
+                    throw e;
                 } catch (Exception e) {
                     System.err.println("Failed to merge PDF: " + upload.getOriginalFileName() + " - " + e.getMessage());
                     // Continue with other files
+                } finally {
+                    if (sourceFile != null) {
+                        Files.deleteIfExists(sourceFile);
+                    }
+                    dashboardEventService.mergeProgress(batchName, ++processed, uploads.size());
                 }
             }
             
+            int pageCount = mergedDocument.getNumberOfPages();
             mergedDocument.close();
-            byte[] mergedPdfBytes = mergedOutputStream.toByteArray();
             
-            // Cache the merged PDF for download
-            mergedPdfCache.put(batchName, mergedPdfBytes);
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            if (linearize) {
+                sha256 = linearize(partFile, sha256);
+            }
+            Path artifact = localPath(batchName, sha256);
+            Files.move(partFile, artifact, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Stored to the millisecond, so every node reports the same Last-Modified
+            MergedPdf mergedPdf = new MergedPdf(batchName, artifact, sha256, Files.size(artifact), pageCount,
+                                                Instant.now().truncatedTo(ChronoUnit.MILLIS));
+            
+            sample.stop(Timer.builder("pdf.merge")
+                .description("Time to download and merge one batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+            DistributionSummary.builder("pdf.merge.pages")
+                .description("Pages in a merged batch")
+                .register(meterRegistry)
+                .record(pageCount);
             
-            return mergedPdfBytes;
+            return mergedPdf;
             
         } catch (Exception e) {
-            mergedDocument.close();
+            if (!mergedDocument.isClosed()) {
+                mergedDocument.close();
+            }
+            Files.deleteIfExists(partFile);
+            if (e instanceof ServiceUnavailableException) {
+                throw e;
+            }
             throw new Exception("Failed to merge PDFs: " + e.getMessage());
         }
     }
 
-    public byte[] getMergedPdf(String batchName) throws Exception {
-        byte[] mergedPdf = mergedPdfCache.get(batchName);
-        if (mergedPdf == null) {
-            throw new Exception("Merged PDF not found for batch: " + batchName);
+    /**
+     * Rewrites the merged file in place as a linearized PDF, so a viewer reading it over HTTP
+     * ranges can show the first pages before the rest has arrived. Returns the SHA-256 of the
+     * file that is kept; when qpdf is missing or fails that is the file as merged.
+     */
+    private String linearize(Path partFile, String sha256) throws Exception {
+        Path linearized = partFile.resolveSibling(partFile.getFileName() + ".lin");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        Process process = null;
+        try {
+            process = new ProcessBuilder(qpdfPath, "--linearize", partFile.toString(), linearized.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            if (!process.waitFor(linearizeTimeoutSeconds, TimeUnit.SECONDS)) {
+                logger.warn("qpdf did not linearize {} within {}s, keeping it as merged", partFile, linearizeTimeoutSeconds);
+                outcome = "timeout";
+                return sha256;
+            }
+            // 3 means qpdf wrote the file but had warnings about the input
+            int exitCode = process.exitValue();
+            if (exitCode != 0 && exitCode != 3) {
+                logger.warn("qpdf exited with {} linearizing {}, keeping it as merged", exitCode, partFile);
+                return sha256;
+            }
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(Files.newInputStream(linearized), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            Files.move(linearized, partFile, StandardCopyOption.REPLACE_EXISTING);
+            outcome = "success";
+            return HexFormat.of().formatHex(digest.digest());
+
+        } catch (IOException e) {
+            logger.warn("Could not run {} to linearize {}: {}", qpdfPath, partFile, e.getMessage());
+            return sha256;
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+            Files.deleteIfExists(linearized);
+            sample.stop(Timer.builder("pdf.merge.linearize")
+                .description("Time to linearize a merged batch")
+                .tag("result", outcome)
+                .register(meterRegistry));
+        }
+    }
+
+    /** Stores the merged file in parts of {@code app.merge.part-size-mb}. */
+    private List<MergedArtifact.Part> store(MergedPdf mergedPdf, String shard) throws Exception {
+        String batchName = mergedPdf.getBatchName();
+        long partSize = partSizeMb * 1024L * 1024L;
+        List<MergedArtifact.Part> parts = new ArrayList<>();
+
+        try (InputStream in = Files.newInputStream(mergedPdf.getPath())) {
+            for (long offset = 0; offset < mergedPdf.getSize(); offset += partSize) {
+                int length = (int) Math.min(partSize, mergedPdf.getSize() - offset);
+                String name = mergedPdf.getSha256().substring(0, 16) + "-" + (parts.size() + 1) + ".part";
+
+                // The part, its base64 text and the request body built from that
+                try (MemoryGovernor.Permit permit = memoryGovernor.acquireWaiting("merge-store", length * 4L)) {
+                    byte[] content = in.readNBytes(length);
+                    StoredFile stored = storageShardRouter.submitWrite(shard,
+                        () -> gitHubStorageService.storeMergedPart(shard, content, batchName, name)).get();
+                    parts.add(new MergedArtifact.Part(stored.getPath(), stored.getSha(), length));
+                }
+            }
+        } catch (Exception e) {
+            deleteParts(shard, parts);
+            throw e;
         }
-        return mergedPdf;
+        return parts;
+    }
+
+    /**
+     * Points the batch's row at the stored parts and returns where the parts of the previous
+     * merge are, so they can be deleted once the transaction has committed.
+     */
+    private Replaced point(MergedPdf mergedPdf, String shard, List<MergedArtifact.Part> parts) {
+        String batchName = mergedPdf.getBatchName();
+        MergedArtifact previous = mergedArtifactRepository.findById(batchName).orElse(null);
+        // Read before saving, as the save overwrites the managed row. An identical merge stored
+        // its parts under the same paths, and those are not the previous merge's to delete.
+        List<String> paths = parts.stream().map(MergedArtifact.Part::getGithubPath).toList();
+        Replaced replaced = previous != null
+            ? new Replaced(previous.getStorageShard(), previous.getParts().stream()
+                .filter(part -> !previous.getStorageShard().equals(shard) || !paths.contains(part.getGithubPath()))
+                .toList())
+            : new Replaced(shard, List.of());
+
+        MergedArtifact artifact = new MergedArtifact(batchName, shard, mergedPdf.getSha256(), mergedPdf.getSize(),
+            mergedPdf.getPageCount(), LocalDateTime.ofInstant(mergedPdf.getCreatedAt(), ZoneId.systemDefault()));
+        artifact.setParts(parts);
+        mergedArtifactRepository.save(artifact);
+        return replaced;
     }
 
-    public void clearMergedPdf(String batchName) {
-        mergedPdfCache.remove(batchName);
+    private void deleteParts(String shard, List<MergedArtifact.Part> parts) {
+        if (parts.isEmpty()) {
+            return;
+        }
+        List<String> paths = parts.stream().map(MergedArtifact.Part::getGithubPath).toList();
+        try {
+            storageShardRouter.submitWrite(shard, () -> {
+                gitHubStorageService.deleteFiles(shard, paths);
+                return null;
+            }).get();
+        } catch (Exception e) {
+            // Nothing points at them any more; they only take up space
+            logger.warn("Failed to delete {} merged PDF parts from {}: {}", paths.size(), shard, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the latest merged PDF of a batch, fetching it into the local cache first if needed,
+     * or null if the batch was never merged.
+     */
+    public MergedPdf getMergedPdf(String batchName) throws Exception {
+        MergedArtifact artifact = mergedArtifactRepository.findById(batchName).orElse(null);
+        if (artifact == null) {
+            return null;
+        }
+        Path local = localPath(batchName, artifact.getSha256());
+
+        boolean cached = isCached(local, artifact);
+        meterRegistry.counter("cache.lookups", "cache", "merged-pdf",
+                              "result", cached ? "hit" : "miss").increment();
+        if (!cached) {
+            synchronized (fetchLocks.computeIfAbsent(batchName, name -> new Object())) {
+                if (!isCached(local, artifact)) {
+                    fetch(artifact, local);
+                    evictLocal(batchName, local);
+                }
+            }
+        }
+
+        return new MergedPdf(batchName, local, artifact.getSha256(), artifact.getFileSize(), artifact.getPageCount(),
+                             artifact.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant());
     }
+
+    /**
+     * Copies a merged PDF that another node produced from the blob store into the local cache,
+     * checking the reassembled file against the recorded SHA-256.
+     */
+    private void fetch(MergedArtifact artifact, Path local) throws Exception {
+        Path directory = Files.createDirectories(Path.of(outputDir));
+        Path partFile = Files.createTempFile(directory, "fetch-", ".pdf.part");
+        Path download = Files.createTempFile(directory, "fetch-", ".download");
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (OutputStream out = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(partFile)), digest)) {
+                for (MergedArtifact.Part part : artifact.getParts()) {
+                    gitHubStorageService.downloadToFile(artifact.getStorageShard(), part.getGithubPath(),
+                                                        part.getBlobSha(), download);
+                    Files.copy(download, out);
+                }
+            }
+
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            if (!sha256.equals(artifact.getSha256())) {
+                throw new IOException("Checksum mismatch for merged PDF of " + artifact.getBatch());
+            }
+            Files.move(partFile, local, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Fetched merged PDF of {} ({} bytes) from {}", artifact.getBatch(), artifact.getFileSize(),
+                        artifact.getStorageShard());
+        } finally {
+            Files.deleteIfExists(download);
+            Files.deleteIfExists(partFile);
+        }
+    }
+
+    private boolean isCached(Path local, MergedArtifact artifact) throws IOException {
+        return Files.exists(local) && Files.size(local) == artifact.getFileSize();
+    }
+
+    private Path localPath(String batchName, String sha256) {
+        return Path.of(outputDir).resolve(localPrefix(batchName) + sha256.substring(0, 16) + ".pdf");
+    }
+
+    private String localPrefix(String batchName) {
+        return batchName.replaceAll("[^A-Za-z0-9]+", "_") + "-";
+    }
+
+    /** Removes cached merges of the batch other than {@code keep}; they are no longer served. */
+    private void evictLocal(String batchName, Path keep) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Path.of(outputDir), localPrefix(batchName) + "*.pdf")) {
+            for (Path file : files) {
+                if (!file.equals(keep)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Could not clean cached merges of {}: {}", batchName, e.getMessage());
+        }
+    }
+
+    public void clearMergedPdf(String batchName) throws IOException {
+        MergedArtifact artifact = mergedArtifactRepository.findById(batchName).orElse(null);
+        if (artifact == null) {
+            return;
+        }
+        List<MergedArtifact.Part> parts = new ArrayList<>(artifact.getParts());
+        mergedArtifactRepository.delete(artifact);
+        deleteParts(artifact.getStorageShard(), parts);
+        Files.deleteIfExists(localPath(batchName, artifact.getSha256()));
+    }
+
+    private record Replaced(String shard, List<MergedArtifact.Part> parts) {}
 }
@@ -0,0 +1,354 @@
+package com.pdfprinting.service;
+
+import com.itextpdf.io.source.ByteArrayOutputStream;
+import com.itextpdf.kernel.pdf.CompressionConstants;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfNumber;
+import com.itextpdf.kernel.pdf.PdfObject;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfStream;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.WriterProperties;
+import com.itextpdf.kernel.pdf.xobject.PdfImageXObject;
+import com.pdfprinting.model.MergeJob;
+import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.model.StoredFile;
+import com.pdfprinting.repository.MergeJobRepository;
+import com.pdfprinting.repository.PdfUploadRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional background stage that rewrites uploaded PDFs with full compression and object
+ * streams, and optionally downsamples images above {@code app.optimize.max-image-dpi}.
+ * The rewritten file replaces the stored one only when it is smaller; either way the
+ * original size is recorded on the upload so savings can be reported per file.
+ * <p>
+ * Results are written with conditional updates that only apply while the upload is pending
+ * and still points at the file that was read. Uploads a queued or running merge covers are
+ * left alone, and a replaced file is only deleted once no merge of its batch is running and
+ * {@code app.optimize.delete-delay-minutes} have passed, so a merge or export that read the
+ * row before the switch still finds it. Files due for deletion when the node stops are left
+ * in storage.
+ */
+@Service
+public class PdfOptimizationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfOptimizationService.class);
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    @Autowired
+    private PdfUploadRepository pdfUploadRepository;
+
+    @Autowired
+    private GitHubStorageService gitHubStorageService;
+
+    @Autowired
+    private StorageShardRouter storageShardRouter;
+
+    @Autowired
+    private StorageCircuitBreaker storageCircuitBreaker;
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private MergeJobRepository mergeJobRepository;
+
+    @Autowired
+    private MemoryGovernor memoryGovernor;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.optimize.enabled:false}")
+    private boolean enabled;
+
+    // 0 keeps every image as it is
+    @Value("${app.optimize.max-image-dpi:0}")
+    private int maxImageDpi;
+
+    @Value("${app.optimize.delete-delay-minutes:10}")
+    private long deleteDelayMinutes;
+
+    private final Queue<Replaced> replaced = new ConcurrentLinkedQueue<>();
+
+    // Queued uploads are only ids, the files are fetched from storage when their turn comes
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(1000), runnable -> {
+            Thread thread = new Thread(runnable, "pdf-optimizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void submit(Long uploadId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            executor.execute(() -> storageCircuitBreaker.inBackground(() -> optimize(uploadId)));
+        } catch (RejectedExecutionException e) {
+            // Optimization is best effort; the upload itself is already stored
+            logger.warn("Optimization queue full, skipping upload {}", uploadId);
+            result("skipped");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void optimize(Long uploadId) {
+        PdfUpload upload = pdfUploadRepository.findById(uploadId).orElse(null);
+        if (upload == null || upload.getStatus() != PdfUpload.Status.PENDING || upload.getOptimizedAt() != null) {
+            return;
+        }
+        // About to be merged; rewriting it now would only race the merge
+        if (mergeJobRepository.existsByBatchAndStatusInAndCutoffGreaterThanEqual(upload.getBatch(),
+                List.of(MergeJob.Status.QUEUED, MergeJob.Status.RUNNING), upload.getUploadedAt())) {
+            result("skipped");
+            return;
+        }
+
+        String shard = storageShardRouter.resolve(upload.getStorageShard());
+        // Downloaded and rewritten copies, the parsed document and the upload's base64 text
+        try (MemoryGovernor.Permit permit = memoryGovernor.acquireWaiting("optimize", upload.getFileSize() * 6)) {
+            byte[] original = gitHubStorageService.downloadFile(shard, upload.getGithubPath(), upload.getBlobSha());
+            byte[] optimized = rewrite(original);
+
+            if (optimized.length >= original.length) {
+                int updated = pdfUploadRepository.markOptimized(upload.getId(), PdfUpload.Status.PENDING,
+                    upload.getGithubPath(), original.length, LocalDateTime.now());
+                result(updated > 0 ? "kept" : "superseded");
+                return;
+            }
+
+            replace(upload, shard, original.length, optimized);
+
+        } catch (Exception e) {
+            logger.warn("Failed to optimize {}: {}", upload.getGithubPath(), e.getMessage());
+            result("failed");
+        }
+    }
+
+    private void replace(PdfUpload upload, String shard, long originalSize, byte[] optimized) throws Exception {
+        String fileName = upload.getFileName().replaceFirst("\\.pdf$", "") + "-optimized.pdf";
+
+        // Store the new file and switch the row over before removing the old one, as the rebalance does
+        StoredFile storedFile = storageShardRouter.submitWrite(shard,
+            () -> gitHubStorageService.uploadContent(shard, optimized, fileName,
+                                                     upload.getBatch(), upload.getOriginalFileName())).get();
+
+        // The student may have deleted it, changed it, or the admin merged it, while we were working
+        Boolean switched = transactionTemplate.execute(transaction -> {
+            if (pdfUploadRepository.replaceFile(upload.getId(), PdfUpload.Status.PENDING, upload.getGithubPath(),
+                    storedFile.getPath(), storedFile.getSha(), optimized.length, originalSize, LocalDateTime.now()) == 0) {
+                return false;
+            }
+            batchService.recordResize(upload.getBatch(), optimized.length - originalSize);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(switched)) {
+            removeStored(shard, storedFile.getPath(), storedFile.getSha());
+            result("superseded");
+            return;
+        }
+
+        replaced.add(new Replaced(upload.getBatch(), shard, upload.getGithubPath(), upload.getBlobSha(), LocalDateTime.now()));
+
+        result("smaller");
+        DistributionSummary.builder("pdf.optimize.saved")
+            .description("Bytes saved per optimized upload")
+            .baseUnit("bytes")
+            .register(meterRegistry)
+            .record(originalSize - optimized.length);
+        logger.info("Optimized {}: {} -> {} bytes", storedFile.getPath(), originalSize, optimized.length);
+    }
+
+    /** Deletes replaced files that nothing can still be reading. */
+    @Scheduled(fixedDelayString = "${app.optimize.cleanup-ms:60000}")
+    public void deleteReplaced() {
+        storageCircuitBreaker.inBackground(this::deleteDueReplaced);
+    }
+
+    private void deleteDueReplaced() {
+        LocalDateTime due = LocalDateTime.now().minusMinutes(deleteDelayMinutes);
+        for (Replaced file : replaced) {
+            // A merge claimed before the switch may have the old path in its snapshot
+            if (file.replacedAt().isAfter(due) ||
+                mergeJobRepository.existsByBatchAndStatus(file.batch(), MergeJob.Status.RUNNING)) {
+                continue;
+            }
+            replaced.remove(file);
+            try {
+                removeStored(file.shard(), file.path(), file.sha());
+            } catch (Exception e) {
+                // No row points at it any more; it only takes up space
+                logger.warn("Failed to delete replaced file {}: {}", file.path(), e.getMessage());
+            }
+        }
+    }
+
+    private void removeStored(String shard, String path, String sha) throws Exception {
+        storageShardRouter.submitWrite(shard, () -> {
+            gitHubStorageService.deleteFile(shard, path, sha);
+            return null;
+        }).get();
+    }
+
+    /**
+     * Rewrites the document with full compression (object and cross-reference streams, every
+     * stream deflated) and, when configured, downsamples oversized images.
+     */
+    byte[] rewrite(byte[] original) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WriterProperties properties = new WriterProperties()
+            .setFullCompressionMode(true)
+            .setCompressionLevel(CompressionConstants.BEST_COMPRESSION);
+
+        try (PdfDocument document = new PdfDocument(new PdfReader(new ByteArrayInputStream(original)),
+                                                    new PdfWriter(out, properties))) {
+            if (maxImageDpi > 0) {
+                downsampleImages(document);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private void downsampleImages(PdfDocument document) {
+        Set<PdfObject> visited = new HashSet<>();
+
+        for (int i = 1; i <= document.getNumberOfPages(); i++) {
+            PdfPage page = document.getPage(i);
+            PdfDictionary xObjects = page.getResources().getResource(PdfName.XObject);
+            if (xObjects == null) {
+                continue;
+            }
+
+            // An image cannot be drawn larger than the page, so this is the lowest resolution it can have
+            float pageWidthInches = page.getPageSize().getWidth() / 72f;
+            float pageHeightInches = page.getPageSize().getHeight() / 72f;
+
+            for (PdfName name : xObjects.keySet()) {
+                PdfStream stream = xObjects.getAsStream(name);
+                if (stream == null || !PdfName.Image.equals(stream.getAsName(PdfName.Subtype)) || !visited.add(stream)) {
+                    continue;
+                }
+
+                int width = intValue(stream, PdfName.Width);
+                int height = intValue(stream, PdfName.Height);
+                float minimumDpi = Math.max(width / pageWidthInches, height / pageHeightInches);
+                if (minimumDpi <= maxImageDpi || !canDownsample(stream)) {
+                    continue;
+                }
+
+                try {
+                    downsample(stream, maxImageDpi / minimumDpi);
+                } catch (Exception e) {
+                    // Formats ImageIO cannot decode stay as they are
+                    logger.debug("Could not downsample image {}: {}", name, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private boolean canDownsample(PdfStream stream) {
+        if (stream.containsKey(PdfName.ImageMask) || stream.containsKey(PdfName.Decode) ||
+            intValue(stream, PdfName.BitsPerComponent) != 8) {
+            return false;
+        }
+        PdfName colorSpace = stream.getAsName(PdfName.ColorSpace);
+        return PdfName.DeviceRGB.equals(colorSpace) || PdfName.DeviceGray.equals(colorSpace);
+    }
+
+    private void downsample(PdfStream stream, float scale) throws IOException {
+        BufferedImage source = new PdfImageXObject(stream).getBufferedImage();
+        boolean gray = PdfName.DeviceGray.equals(stream.getAsName(PdfName.ColorSpace));
+        int width = Math.max(1, Math.round(source.getWidth() * scale));
+        int height = Math.max(1, Math.round(source.getHeight() * scale));
+
+        BufferedImage scaled = new BufferedImage(width, height, gray ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        // Replace the image data in place, so every page using this image picks up the smaller one
+        stream.setData(encodeJpeg(scaled));
+        stream.put(PdfName.Width, new PdfNumber(width));
+        stream.put(PdfName.Height, new PdfNumber(height));
+        stream.put(PdfName.Filter, PdfName.DCTDecode);
+        stream.remove(PdfName.DecodeParms);
+        stream.setCompressionLevel(CompressionConstants.NO_COMPRESSION);
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private int intValue(PdfStream stream, PdfName key) {
+        PdfNumber number = stream.getAsNumber(key);
+        return number != null ? number.intValue() : 0;
+    }
+
+    private void result(String outcome) {
+        meterRegistry.counter("pdf.optimize", "result", outcome).increment();
+    }
+
+    private record Replaced(String batch, String shard, String path, String sha, LocalDateTime replacedAt) {}
+}
@@ -1,25 +1,83 @@
 package com.pdfprinting.service;
 
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
 import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.model.StoredFile;
 import com.pdfprinting.model.User;
 import com.pdfprinting.repository.PdfUploadRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 public class PdfUploadService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PdfUploadService.class);
+
+    private static final int UPLOAD_BUFFER_FACTOR = 4;
+
     @Autowired
     private PdfUploadRepository pdfUploadRepository;
 
+    @Autowired
+    private BatchService batchService;
+
     @Autowired
     private GitHubStorageService gitHubStorageService;
 
+    @Autowired
+    private StorageShardRouter storageShardRouter;
+
+    @Autowired
+    private PdfOptimizationService pdfOptimizationService;
+
+    @Autowired
+    private MemoryGovernor memoryGovernor;
+
+    @Autowired
+    private StorageCircuitBreaker storageCircuitBreaker;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Files one student may have waiting in a batch until it is merged; 0 means no cap
+    @Value("${app.upload.max-pending-per-batch:50}")
+    private int maxPendingPerBatch;
+
+    @Value("${app.upload.max-copies:20}")
+    private int maxCopies;
+
+    public void checkPendingQuota(User user, String batch, int newFiles) throws Exception {
+        if (maxPendingPerBatch <= 0) {
+            return;
+        }
+        long pending = pdfUploadRepository.countByUserAndBatchAndStatus(user, batch, PdfUpload.Status.PENDING);
+        if (pending + newFiles > maxPendingPerBatch) {
+            meterRegistry.counter("upload.quota.rejected").increment();
+            throw new Exception("You already have " + pending + " pending files in " + batch + 
+                                "; at most " + maxPendingPerBatch + " are allowed until it is printed");
+        }
+    }
+
     public List<PdfUpload> getUserUploads(User user) {
         return pdfUploadRepository.findByUserOrderByUploadedAtDesc(user);
     }
@@ -28,8 +86,27 @@ public class PdfUploadService {
         return pdfUploadRepository.findByBatchAndStatusOrderByUploadedAtAsc(batch, PdfUpload.Status.PENDING);
     }
 
+    public List<PdfUpload> getBatchUploads(String batch, LocalDateTime cutoff) {
+        return pdfUploadRepository.findByBatchAndStatusAndUploadedAtLessThanEqualOrderByUploadedAtAsc(
+            batch, PdfUpload.Status.PENDING, cutoff);
+    }
+
     public int uploadPdfs(MultipartFile[] files, String batch, User user) throws Exception {
-        int uploadedCount = 0;
+        return uploadPdfs(files, batch, user, null, 1);
+    }
+
+    /**
+     * Stores the files with the same page selection and copy count for each; see
+     * {@link #setPrintOptions} for changing them per file later.
+     */
+    public int uploadPdfs(MultipartFile[] files, String batch, User user, String pageRanges, int copies) throws Exception {
+        if (!batchService.exists(batch)) {
+            throw new Exception("Unknown batch: " + batch);
+        }
+        String selection = PageRanges.normalize(pageRanges);
+        checkCopies(copies);
+        
+        List<MultipartFile> validFiles = new ArrayList<>();
         
         for (MultipartFile file : files) {
             if (file.isEmpty()) {
@@ -46,29 +123,177 @@ public class PdfUploadService {
                 throw new Exception("File size must be less than 10MB");
             }
             
-            // Generate unique filename
-            String originalFilename = file.getOriginalFilename();
-            String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
+            validFiles.add(file);
+        }
+        
+        checkPendingQuota(user, batch, validFiles.size());
+        storageCircuitBreaker.checkAvailable();
+        
+        Timer.Sample sample = Timer.start(meterRegistry);
+        
+        // The raw bytes, their base64 text and the JSON request body are in memory at the same time
+        long bufferedBytes = validFiles.stream().mapToLong(MultipartFile::getSize).sum() * UPLOAD_BUFFER_FACTOR;
+        List<PdfUpload> saved = new ArrayList<>();
+        Exception failure = null;
+        
+        try (MemoryGovernor.Permit permit = memoryGovernor.acquire("upload", bufferedBytes)) {
+            // Every file is checked against the page selection before any of them is stored
+            List<PdfUpload> uploads = new ArrayList<>();
             
-            // Upload to GitHub
-            String githubPath = gitHubStorageService.uploadFile(file, uniqueFilename, batch);
+            for (MultipartFile file : validFiles) {
+                // Generate unique filename
+                String originalFilename = file.getOriginalFilename();
+                String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+                String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
             
-            // Save to database
-            PdfUpload upload = new PdfUpload(
-                uniqueFilename,
-                originalFilename,
-                githubPath,
-                batch,
-                file.getSize(),
-                user
-            );
+                PdfUpload upload = new PdfUpload(
+                    uniqueFilename,
+                    originalFilename,
+                    null,
+                    batch,
+                    file.getSize(),
+                    user
+                );
+                upload.setStorageShard(storageShardRouter.shardFor(uniqueFilename));
+                upload.setPageCount(countPages(file));
+                applyPrintOptions(upload, selection, copies);
+                uploads.add(upload);
+            }
             
-            pdfUploadRepository.save(upload);
-            uploadedCount++;
+            // Hand each file to the writer of its shard so different repositories upload in parallel.
+            // A file stored after we stopped waiting for it has no row, so it is deleted again
+            List<StorageShardRouter.Write<StoredFile>> storedFiles = new ArrayList<>();
+            for (int i = 0; i < uploads.size(); i++) {
+                MultipartFile file = validFiles.get(i);
+                String uniqueFilename = uploads.get(i).getFileName();
+                String shard = uploads.get(i).getStorageShard();
+                try {
+                    storedFiles.add(storageShardRouter.submitWrite(shard,
+                            () -> gitHubStorageService.uploadFile(shard, file, uniqueFilename, batch))
+                        .onAbandoned(stored -> gitHubStorageService.deleteFile(shard, stored.getPath(), stored.getSha())));
+                } catch (StorageUnavailableException e) {
+                    // The writer of that shard is full; the files already queued still go through
+                    failure = e;
+                    break;
+                }
+            }
+            
+            // Save every file that reached storage, then report the first failure
+            for (int i = 0; i < storedFiles.size(); i++) {
+                StoredFile storedFile;
+                try {
+                    storedFile = storedFiles.get(i).get();
+                } catch (Exception e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    continue;
+                }
+                PdfUpload upload = uploads.get(i);
+                upload.setGithubPath(storedFile.getPath());
+                upload.setBlobSha(storedFile.getSha());
+            
+                // The row and its counter update commit together, so the reconcile never sees one without the other
+                saved.add(transactionTemplate.execute(transaction -> {
+                    batchService.lockCounters(batch);
+                    boolean newStudent = !pdfUploadRepository.existsByUserAndBatchAndStatus(user, batch, PdfUpload.Status.PENDING);
+                    PdfUpload row = pdfUploadRepository.save(upload);
+                    batchService.recordUpload(batch, List.of(row), newStudent);
+                    return row;
+                }));
+                uploadSize().record(upload.getFileSize());
+            }
         }
         
-        return uploadedCount;
+        for (PdfUpload upload : saved) {
+            pdfOptimizationService.submit(upload.getId());
+        }
+        
+        sample.stop(Timer.builder("pdf.upload")
+            .description("Time to store and record one upload request")
+            .tag("outcome", failure == null ? "success" : "failure")
+            .publishPercentileHistogram()
+            .register(meterRegistry));
+        
+        if (failure instanceof ServiceUnavailableException && !saved.isEmpty()) {
+            // Not a 503: part of the request did go through
+            throw new Exception(saved.size() + " of " + validFiles.size() + " PDF(s) uploaded; " + failure.getMessage());
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        
+        return saved.size();
+    }
+
+    /**
+     * Changes which pages of a pending upload are printed and how many times.
+     */
+    public void setPrintOptions(Long id, User user, String pageRanges, int copies) throws Exception {
+        checkCopies(copies);
+        String selection = PageRanges.normalize(pageRanges);
+        
+        // Checked and changed on the locked row, so a merge or optimization that finished meanwhile is not undone
+        String error = transactionTemplate.execute(transaction -> {
+            PdfUpload upload = pdfUploadRepository.lockAllById(List.of(id)).stream().findFirst().orElse(null);
+            if (upload == null) {
+                return "PDF not found";
+            }
+            if (!upload.getUser().getId().equals(user.getId())) {
+                return "Unauthorized access";
+            }
+            if (upload.getStatus() != PdfUpload.Status.PENDING) {
+                return "Cannot change processed files";
+            }
+            
+            int printedBefore = upload.getPrintedPages();
+            try {
+                applyPrintOptions(upload, selection, copies);
+            } catch (Exception e) {
+                return e.getMessage();
+            }
+            batchService.recordReprint(upload.getBatch(), upload.getPrintedPages() - printedBefore);
+            return null;
+        });
+        if (error != null) {
+            throw new Exception(error);
+        }
+    }
+
+    void checkCopies(int copies) throws Exception {
+        if (copies < 1 || copies > maxCopies) {
+            throw new Exception("Copies must be between 1 and " + maxCopies);
+        }
+    }
+
+    private void applyPrintOptions(PdfUpload upload, String selection, int copies) throws Exception {
+        int selected = PageRanges.select(selection, upload.getPageCount()).size();
+        // Without a page count the file could not be read, and the merge finds out what it holds
+        if (selected == 0 && upload.getPageCount() > 0) {
+            throw new Exception("Pages " + selection + " are not in " + upload.getOriginalFileName() + 
+                                ", which has " + upload.getPageCount() + " pages");
+        }
+        upload.setPageRanges(selection);
+        upload.setCopies(copies);
+        upload.setPrintedPages(selected * copies);
+    }
+
+    private int countPages(MultipartFile file) {
+        try (InputStream in = file.getInputStream();
+             PdfDocument document = new PdfDocument(new PdfReader(in))) {
+            return document.getNumberOfPages();
+        } catch (Exception e) {
+            // Unreadable files are still accepted; the merge skips them as before
+            logger.warn("Could not count pages of {}: {}", file.getOriginalFilename(), e.getMessage());
+            return 0;
+        }
+    }
+
+    private DistributionSummary uploadSize() {
+        return DistributionSummary.builder("pdf.upload.size")
+            .description("Bytes ingested per uploaded file")
+            .baseUnit("bytes")
+            .register(meterRegistry);
     }
 
     public void deletePdf(Long id, User user) throws Exception {
@@ -85,18 +310,80 @@ public class PdfUploadService {
             throw new Exception("Cannot delete processed files");
         }
         
-        // Delete from GitHub
-        gitHubStorageService.deleteFile(upload.getGithubPath());
+        // Delete from GitHub, through the writer of its shard like every other commit there
+        String shard = storageShardRouter.resolve(upload.getStorageShard());
+        storageShardRouter.submitWrite(shard, () -> {
+            gitHubStorageService.deleteFile(shard, upload.getGithubPath(), upload.getBlobSha());
+            return null;
+        }).get();
         
-        // Delete from database
-        pdfUploadRepository.delete(upload);
+        // Delete from database, together with the counter update
+        transactionTemplate.executeWithoutResult(transaction -> {
+            // Flushed first, so the upload row is locked before the batch row as everywhere else
+            pdfUploadRepository.delete(upload);
+            pdfUploadRepository.flush();
+            
+            batchService.lockCounters(upload.getBatch());
+            boolean lastForStudent = !pdfUploadRepository.existsByUserAndBatchAndStatus(user, upload.getBatch(), PdfUpload.Status.PENDING);
+            batchService.recordRemoval(upload.getBatch(), List.of(upload), lastForStudent ? 1 : 0);
+        });
     }
 
     public void clearBatchUploads(String batch) {
-        List<PdfUpload> uploads = pdfUploadRepository.findByBatchAndStatusOrderByUploadedAtAsc(batch, PdfUpload.Status.PENDING);
+        clearBatchUploads(batch, pdfUploadRepository.findByBatchAndStatusOrderByUploadedAtAsc(batch, PdfUpload.Status.PENDING));
+    }
+
+    /**
+     * Marks exactly the given snapshot as processed, so files uploaded while it was being
+     * merged stay in the queue for the next merge.
+     */
+    public void clearBatchUploads(String batch, List<PdfUpload> snapshot) {
+        List<Long> ids = snapshot.stream().map(PdfUpload::getId).collect(Collectors.toList());
+        // Joins the merge's transaction when there is one; the rows are locked and read again, so
+        // changes made since the snapshot was taken are kept
+        transactionTemplate.executeWithoutResult(transaction -> {
+            List<PdfUpload> uploads = pdfUploadRepository.lockAllById(ids).stream()
+                .filter(upload -> upload.getStatus() == PdfUpload.Status.PENDING)
+                .collect(Collectors.toList());
+            for (PdfUpload upload : uploads) {
+                upload.setStatus(PdfUpload.Status.PROCESSED);
+            }
+            pdfUploadRepository.saveAll(uploads);
+            
+            batchService.lockCounters(batch);
+            Map<Long, User> students = uploads.stream()
+                .collect(Collectors.toMap(upload -> upload.getUser().getId(), PdfUpload::getUser, (first, second) -> first));
+            long studentsDone = students.values().stream()
+                .filter(student -> !pdfUploadRepository.existsByUserAndBatchAndStatus(student, batch, PdfUpload.Status.PENDING))
+                .count();
+            batchService.recordRemoval(batch, uploads, studentsDone);
+        });
+    }
+
+    public int purgeProcessedUploads(String batch) throws Exception {
+        List<PdfUpload> uploads = pdfUploadRepository.findByBatchAndStatusOrderByUploadedAtAsc(batch, PdfUpload.Status.PROCESSED);
+        if (uploads.isEmpty()) {
+            return 0;
+        }
+        
+        // Remove all files in a handful of commits per shard, then mark the rows as deleted
+        Map<String, List<String>> pathsByShard = uploads.stream()
+            .collect(Collectors.groupingBy(
+                upload -> storageShardRouter.resolve(upload.getStorageShard()),
+                Collectors.mapping(PdfUpload::getGithubPath, Collectors.toList())
+            ));
+        for (Map.Entry<String, List<String>> entry : pathsByShard.entrySet()) {
+            storageShardRouter.submitWrite(entry.getKey(), () -> {
+                gitHubStorageService.deleteFiles(entry.getKey(), entry.getValue());
+                return null;
+            }).get();
+        }
+        
         for (PdfUpload upload : uploads) {
-            upload.setStatus(PdfUpload.Status.PROCESSED);
-            pdfUploadRepository.save(upload);
+            upload.setStatus(PdfUpload.Status.DELETED);
         }
+        pdfUploadRepository.saveAll(uploads);
+        
+        return uploads.size();
     }
 }
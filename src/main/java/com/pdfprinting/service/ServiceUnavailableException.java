@@ -0,0 +1,21 @@
+package com.pdfprinting.service;
+
+/**
+ * An operation was refused before it did any work because the node is overloaded or a
+ * dependency is down. Callers serving a request answer it with 503 and a Retry-After.
+ */
+public class ServiceUnavailableException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public ServiceUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
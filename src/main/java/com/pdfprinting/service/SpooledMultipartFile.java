@@ -0,0 +1,67 @@
+package com.pdfprinting.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Presents an assembled spool file as a {@link MultipartFile}, so chunked uploads
+ * go through the same {@link PdfUploadService} pipeline as form uploads.
+ */
+class SpooledMultipartFile implements MultipartFile {
+
+    private final Path spoolFile;
+    private final String originalFilename;
+    private final long size;
+
+    SpooledMultipartFile(Path spoolFile, String originalFilename, long size) {
+        this.spoolFile = spoolFile;
+        this.originalFilename = originalFilename;
+        this.size = size;
+    }
+
+    @Override
+    public String getName() {
+        return "files";
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return "application/pdf";
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(spoolFile);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(spoolFile);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.copy(spoolFile, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,303 @@
+package com.pdfprinting.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.kohsuke.github.HttpException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guards every call to remote storage.
+ * <ul>
+ *   <li>Circuit breaker: the outcomes of the last {@code app.storage.breaker.window} calls are kept;
+ *       once at least {@code minimum-calls} are recorded and the share of failures or of calls slower
+ *       than {@code slow-call-ms} reaches its threshold, the circuit opens and calls are refused for
+ *       {@code open-seconds}. Then {@code half-open-calls} trial calls decide between closing it
+ *       again and another open period.</li>
+ *   <li>Bulkhead: at most {@code app.storage.max-concurrent-calls} remote calls run at once; a call
+ *       that finds no free slot within {@code app.storage.bulkhead-wait-ms} is refused. Work run
+ *       through {@link #inBackground} (merges, optimization, exports, retention) has a partition of
+ *       its own, {@code background-concurrent-calls}, and waits up to {@code background-wait-ms}
+ *       for a slot, so it neither crowds out requests nor fails at the first busy moment.</li>
+ * </ul>
+ * Refused calls throw {@link StorageUnavailableException} at once, so request threads are not
+ * tied up waiting on a storage service that is down.
+ * <p>
+ * A call counts as slow by the time until the service answered, not the time spent streaming a
+ * large body afterwards; see {@link #callStreaming}.
+ */
+@Service
+public class StorageCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageCircuitBreaker.class);
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.storage.breaker.window:20}")
+    private int windowSize;
+
+    @Value("${app.storage.breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${app.storage.breaker.failure-rate:50}")
+    private int failureRatePercent;
+
+    @Value("${app.storage.breaker.slow-call-ms:15000}")
+    private long slowCallMs;
+
+    @Value("${app.storage.breaker.slow-call-rate:80}")
+    private int slowCallRatePercent;
+
+    @Value("${app.storage.breaker.open-seconds:30}")
+    private long openSeconds;
+
+    @Value("${app.storage.breaker.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    @Value("${app.storage.max-concurrent-calls:16}")
+    private int maxConcurrentCalls;
+
+    @Value("${app.storage.bulkhead-wait-ms:500}")
+    private long bulkheadWaitMs;
+
+    @Value("${app.storage.background-concurrent-calls:4}")
+    private int backgroundConcurrentCalls;
+
+    @Value("${app.storage.background-wait-ms:60000}")
+    private long backgroundWaitMs;
+
+    private Semaphore bulkhead;
+    private Semaphore backgroundBulkhead;
+
+    private final ThreadLocal<Boolean> background = ThreadLocal.withInitial(() -> false);
+
+    // Ring buffer of recent outcomes; guarded by this
+    private boolean[] failed;
+    private boolean[] slow;
+    private int recorded;
+    private int next;
+
+    private State state = State.CLOSED;
+    private long openUntil;
+    private int trialCallsLeft;
+    private int trialSuccesses;
+
+    @PostConstruct
+    public void init() {
+        failed = new boolean[windowSize];
+        slow = new boolean[windowSize];
+        bulkhead = new Semaphore(maxConcurrentCalls);
+        backgroundBulkhead = new Semaphore(backgroundConcurrentCalls);
+
+        Gauge.builder("storage.circuit.state", this, breaker -> breaker.currentState().ordinal())
+            .description("Storage circuit: 0 closed, 1 open, 2 half-open")
+            .register(meterRegistry);
+        Gauge.builder("storage.bulkhead.active", bulkhead, slots -> maxConcurrentCalls - slots.availablePermits())
+            .description("Remote storage calls in progress")
+            .tag("partition", "request")
+            .register(meterRegistry);
+        Gauge.builder("storage.bulkhead.active", backgroundBulkhead, slots -> backgroundConcurrentCalls - slots.availablePermits())
+            .description("Remote storage calls in progress")
+            .tag("partition", "background")
+            .register(meterRegistry);
+    }
+
+    /** Runs {@code work} with the storage calls it makes on this thread in the background partition. */
+    public <T> T inBackground(Callable<T> work) throws Exception {
+        boolean outer = background.get();
+        background.set(true);
+        try {
+            return work.call();
+        } finally {
+            background.set(outer);
+        }
+    }
+
+    public void inBackground(Runnable work) {
+        boolean outer = background.get();
+        background.set(true);
+        try {
+            work.run();
+        } finally {
+            background.set(outer);
+        }
+    }
+
+    public boolean isBackground() {
+        return background.get();
+    }
+
+    public <T> T call(String operation, Callable<T> call) throws Exception {
+        return callStreaming(operation, responded -> call.call());
+    }
+
+    /**
+     * Like {@link #call}, for calls that stream a body after the response arrived: the call runs
+     * {@code responded} once the service has answered, and only the time until then is judged
+     * for slowness. A failure while streaming still counts as a failure.
+     */
+    public <T> T callStreaming(String operation, StreamingCall<T> call) throws Exception {
+        boolean trial = admit(operation);
+        boolean backgroundCall = background.get();
+        Semaphore slots = backgroundCall ? backgroundBulkhead : bulkhead;
+
+        try {
+            if (!slots.tryAcquire(backgroundCall ? backgroundWaitMs : bulkheadWaitMs, TimeUnit.MILLISECONDS)) {
+                if (trial) {
+                    returnTrial();
+                }
+                rejected(operation, "bulkhead");
+                throw new StorageUnavailableException("Storage is busy, please try again shortly", 1);
+            }
+        } catch (InterruptedException e) {
+            if (trial) {
+                returnTrial();
+            }
+            Thread.currentThread().interrupt();
+            throw new StorageUnavailableException("Interrupted while waiting for storage", 1);
+        }
+
+        long started = System.nanoTime();
+        long[] respondedAt = new long[1];
+        try {
+            T result = call.call(() -> {
+                if (respondedAt[0] == 0) {
+                    respondedAt[0] = System.nanoTime();
+                }
+            });
+            record(false, (respondedAt[0] != 0 ? respondedAt[0] : System.nanoTime()) - started);
+            return result;
+        } catch (Exception e) {
+            record(countsAsFailure(e), (respondedAt[0] != 0 ? respondedAt[0] : System.nanoTime()) - started);
+            throw e;
+        } finally {
+            slots.release();
+        }
+    }
+
+    /** Refuses early, before a request buffers anything, while the circuit is open. */
+    public synchronized void checkAvailable() throws StorageUnavailableException {
+        if (currentState() == State.OPEN) {
+            rejected("precheck", "open");
+            throw unavailable();
+        }
+    }
+
+    synchronized State currentState() {
+        if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+            transition(State.HALF_OPEN);
+            trialCallsLeft = halfOpenCalls;
+            trialSuccesses = 0;
+        }
+        return state;
+    }
+
+    /** Returns whether the call is one of the half-open trial calls. */
+    private synchronized boolean admit(String operation) throws StorageUnavailableException {
+        State current = currentState();
+        if (current == State.CLOSED) {
+            return false;
+        }
+        if (current == State.HALF_OPEN && trialCallsLeft > 0) {
+            trialCallsLeft--;
+            return true;
+        }
+        rejected(operation, "open");
+        throw unavailable();
+    }
+
+    private synchronized void returnTrial() {
+        if (state == State.HALF_OPEN) {
+            trialCallsLeft++;
+        }
+    }
+
+    private synchronized void record(boolean failure, long nanos) {
+        boolean slowCall = TimeUnit.NANOSECONDS.toMillis(nanos) >= slowCallMs;
+
+        if (state == State.HALF_OPEN) {
+            if (failure || slowCall) {
+                open();
+            } else if (++trialSuccesses >= halfOpenCalls) {
+                transition(State.CLOSED);
+                recorded = 0;
+                next = 0;
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // A call admitted before the circuit opened
+            return;
+        }
+
+        failed[next] = failure;
+        slow[next] = slowCall;
+        next = (next + 1) % windowSize;
+        recorded = Math.min(recorded + 1, windowSize);
+        if (recorded < minimumCalls) {
+            return;
+        }
+
+        int failures = 0;
+        int slowCalls = 0;
+        for (int i = 0; i < recorded; i++) {
+            failures += failed[i] ? 1 : 0;
+            slowCalls += slow[i] ? 1 : 0;
+        }
+        if (failures * 100 >= failureRatePercent * recorded || slowCalls * 100 >= slowCallRatePercent * recorded) {
+            logger.warn("Opening the storage circuit for {}s: {} failed and {} slow of the last {} calls",
+                        openSeconds, failures, slowCalls, recorded);
+            open();
+        }
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openUntil = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(openSeconds);
+    }
+
+    private void transition(State target) {
+        if (state != target) {
+            logger.info("Storage circuit {} -> {}", state, target);
+            state = target;
+            meterRegistry.counter("storage.circuit.transitions", "to", target.name().toLowerCase()).increment();
+        }
+    }
+
+    private StorageUnavailableException unavailable() {
+        long retryAfter = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(openUntil - System.currentTimeMillis()) + 1);
+        return new StorageUnavailableException("File storage is unavailable right now, please try again shortly", retryAfter);
+    }
+
+    private void rejected(String operation, String reason) {
+        meterRegistry.counter("storage.circuit.rejected", "operation", operation, "reason", reason).increment();
+    }
+
+    /**
+     * Answers about a single request (missing file, name clash, bad input) say nothing about the
+     * health of the service; rate limiting and server errors do.
+     */
+    private boolean countsAsFailure(Exception e) {
+        if (e instanceof HttpException http) {
+            int code = http.getResponseCode();
+            return code < 400 || code >= 500 || code == 403 || code == 429;
+        }
+        return true;
+    }
+
+    @FunctionalInterface
+    public interface StreamingCall<T> {
+        T call(Runnable responded) throws Exception;
+    }
+}
@@ -0,0 +1,103 @@
+package com.pdfprinting.service;
+
+import com.pdfprinting.model.StoredFile;
+import com.pdfprinting.repository.StoredFileRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index of the paths we have written to remote storage, keyed by repository and path with
+ * the blob SHA and size as value. The stored_files table is the index, shared by all nodes;
+ * this node keeps up to {@code app.storage.path-cache-size} recently used entries for up to
+ * {@code app.storage.path-cache-seconds} and reads a miss from the table. Paths are never
+ * reused once deleted, so an entry another node removed meanwhile costs at most a failed call.
+ */
+@Service
+public class StoragePathIndex {
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.storage.path-cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${app.storage.path-cache-seconds:300}")
+    private long cacheSeconds;
+
+    // Least recently used first; guarded by itself
+    private final Map<String, Cached> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    public boolean contains(String repository, String path) {
+        return get(repository, path) != null;
+    }
+
+    public String getSha(String repository, String path) {
+        StoredFile storedFile = get(repository, path);
+        return storedFile != null ? storedFile.getSha() : null;
+    }
+
+    public StoredFile get(String repository, String path) {
+        String key = key(repository, path);
+        Cached cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        boolean hit = cached != null && System.nanoTime() - cached.loadedAt() < TimeUnit.SECONDS.toNanos(cacheSeconds);
+        meterRegistry.counter("cache.lookups", "cache", "storage-path-index",
+                              "result", hit ? "hit" : "miss").increment();
+        if (hit) {
+            return cached.storedFile();
+        }
+        
+        StoredFile storedFile = storedFileRepository.findByRepositoryAndPath(repository, path).orElse(null);
+        synchronized (cache) {
+            if (storedFile != null) {
+                cache.put(key, new Cached(storedFile, System.nanoTime()));
+            } else {
+                cache.remove(key);
+            }
+        }
+        return storedFile;
+    }
+
+    public StoredFile record(String repository, String path, String sha, long size) {
+        StoredFile storedFile = storedFileRepository.findByRepositoryAndPath(repository, path)
+            .orElseGet(StoredFile::new);
+        storedFile.setRepository(repository);
+        storedFile.setPath(path);
+        storedFile.setSha(sha);
+        storedFile.setSize(size);
+        storedFile = storedFileRepository.save(storedFile);
+        synchronized (cache) {
+            cache.put(key(repository, path), new Cached(storedFile, System.nanoTime()));
+        }
+        return storedFile;
+    }
+
+    public void remove(String repository, String path) {
+        synchronized (cache) {
+            cache.remove(key(repository, path));
+        }
+        storedFileRepository.findByRepositoryAndPath(repository, path).ifPresent(storedFileRepository::delete);
+    }
+
+    private String key(String repository, String path) {
+        return repository + ":" + path;
+    }
+
+    private record Cached(StoredFile storedFile, long loadedAt) {}
+}
@@ -0,0 +1,189 @@
+package com.pdfprinting.service;
+
+import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.model.StorageRebalance;
+import com.pdfprinting.model.StoredFile;
+import com.pdfprinting.repository.PdfUploadRepository;
+import com.pdfprinting.repository.ScheduledLockRepository;
+import com.pdfprinting.repository.StorageRebalanceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Moves stored files to the shard the router currently assigns them, e.g. after
+ * a repository was added to {@code github.repositories}. A rebalance runs in the background
+ * and records its progress in storage_rebalances; the {@code rebalance} row of scheduled_locks
+ * keeps a second one from starting on any node while it runs.
+ */
+@Service
+public class StorageRebalanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageRebalanceService.class);
+
+    // Progress is written after this many uploads, and at the end
+    private static final int PROGRESS_EVERY = 50;
+
+    @Autowired
+    private PdfUploadRepository pdfUploadRepository;
+
+    @Autowired
+    private StorageRebalanceRepository storageRebalanceRepository;
+
+    @Autowired
+    private ScheduledLockRepository scheduledLockRepository;
+
+    @Autowired
+    private GitHubStorageService gitHubStorageService;
+
+    @Autowired
+    private StorageShardRouter storageShardRouter;
+
+    @Autowired
+    private StorageCircuitBreaker storageCircuitBreaker;
+
+    @Autowired
+    private MemoryGovernor memoryGovernor;
+
+    // A rebalance whose node died frees the lock after this long
+    @Value("${app.rebalance.max-lock-minutes:1440}")
+    private long maxLockMinutes;
+
+    // Empty means process id and host name
+    @Value("${app.node-id:}")
+    private String nodeId;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "storage-rebalance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        if (nodeId.isBlank()) {
+            nodeId = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        int abandoned = storageRebalanceRepository.abandon(nodeId, StorageRebalance.Status.RUNNING,
+            StorageRebalance.Status.FAILED, LocalDateTime.now(), "Interrupted by a restart of its node");
+        if (abandoned > 0) {
+            scheduledLockRepository.release("rebalance", nodeId, LocalDateTime.now());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Starts a rebalance in the background; fails if one is running already. */
+    public StorageRebalance start(String requestedBy) throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        if (scheduledLockRepository.claim("rebalance", nodeId, now, now.plusMinutes(maxLockMinutes)) == 0) {
+            throw new Exception("A storage rebalance is already running");
+        }
+        StorageRebalance rebalance;
+        try {
+            rebalance = storageRebalanceRepository.save(new StorageRebalance(requestedBy, nodeId));
+            executor.execute(() -> storageCircuitBreaker.inBackground(() -> run(rebalance)));
+        } catch (RuntimeException e) {
+            scheduledLockRepository.release("rebalance", nodeId, LocalDateTime.now());
+            throw e;
+        }
+        logger.info("Storage rebalance {} started by {}", rebalance.getId(), requestedBy);
+        return rebalance;
+    }
+
+    public Optional<StorageRebalance> getRebalance(Long id) {
+        return storageRebalanceRepository.findById(id);
+    }
+
+    private void run(StorageRebalance rebalance) {
+        try {
+            List<PdfUpload> uploads = pdfUploadRepository.findByStatusNot(PdfUpload.Status.DELETED);
+            for (PdfUpload upload : uploads) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Node is shutting down");
+                }
+                rebalance.setChecked(rebalance.getChecked() + 1);
+                String currentShard = storageShardRouter.resolve(upload.getStorageShard());
+                String targetShard = storageShardRouter.shardFor(upload.getFileName());
+
+                if (!currentShard.equals(targetShard)) {
+                    try {
+                        moveUpload(upload, currentShard, targetShard);
+                        rebalance.setMoved(rebalance.getMoved() + 1);
+                    } catch (Exception e) {
+                        rebalance.setFailed(rebalance.getFailed() + 1);
+                        logger.warn("Failed to move {} from {} to {}: {}",
+                                    upload.getGithubPath(), currentShard, targetShard, e.getMessage());
+                    }
+                }
+                if (rebalance.getChecked() % PROGRESS_EVERY == 0) {
+                    storageRebalanceRepository.save(rebalance);
+                }
+            }
+            rebalance.setStatus(StorageRebalance.Status.COMPLETED);
+            logger.info("Storage rebalance {} finished: {} checked, {} moved, {} failed", rebalance.getId(),
+                        rebalance.getChecked(), rebalance.getMoved(), rebalance.getFailed());
+        } catch (Exception e) {
+            rebalance.setStatus(StorageRebalance.Status.FAILED);
+            rebalance.setError(e.getMessage());
+            logger.error("Storage rebalance {} failed: {}", rebalance.getId(), e.getMessage());
+        } finally {
+            rebalance.setFinishedAt(LocalDateTime.now());
+            try {
+                storageRebalanceRepository.save(rebalance);
+            } finally {
+                scheduledLockRepository.release("rebalance", nodeId, LocalDateTime.now());
+            }
+        }
+    }
+
+    private void moveUpload(PdfUpload upload, String currentShard, String targetShard) throws Exception {
+        StoredFile storedFile;
+        // The downloaded bytes plus their base64 text and request body on the way back up
+        try (MemoryGovernor.Permit permit = memoryGovernor.acquireWaiting("rebalance", upload.getFileSize() * 4)) {
+            byte[] content = gitHubStorageService.downloadFile(currentShard, upload.getGithubPath(), upload.getBlobSha());
+            
+            // Copy first and switch the row over, so a failure never leaves it pointing at a missing file
+            storedFile = storageShardRouter.submitWrite(targetShard,
+                () -> gitHubStorageService.uploadContent(targetShard, content, upload.getFileName(),
+                                                         upload.getBatch(), upload.getOriginalFileName())).get();
+        }
+        
+        String oldPath = upload.getGithubPath();
+        String oldSha = upload.getBlobSha();
+        
+        upload.setStorageShard(targetShard);
+        upload.setGithubPath(storedFile.getPath());
+        upload.setBlobSha(storedFile.getSha());
+        try {
+            pdfUploadRepository.save(upload);
+        } catch (OptimisticLockingFailureException e) {
+            // Changed while we copied it, e.g. optimized; the row still points at its own file
+            storageShardRouter.submitWrite(targetShard, () -> {
+                gitHubStorageService.deleteFile(targetShard, storedFile.getPath(), storedFile.getSha());
+                return null;
+            }).get();
+            throw e;
+        }
+        
+        storageShardRouter.submitWrite(currentShard, () -> {
+            gitHubStorageService.deleteFile(currentShard, oldPath, oldSha);
+            return null;
+        }).get();
+    }
+}
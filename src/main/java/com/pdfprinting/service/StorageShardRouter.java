@@ -0,0 +1,219 @@
+package com.pdfprinting.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads stored files over the repositories listed in {@code github.repositories}.
+ * Shards are chosen by rendezvous hashing of the file key, so adding a repository
+ * only moves the keys that now rank it highest. Writes to one repository go through
+ * a single writer thread, since concurrent commits to the same branch conflict;
+ * different repositories are written in parallel.
+ * <p>
+ * Request threads may have at most {@code app.storage.write-queue} writes queued or running per
+ * repository and wait at most {@code app.storage.write-timeout-ms} for one; beyond that they get
+ * {@link StorageUnavailableException}, so a slow repository cannot tie up every request thread.
+ * A write whose caller gave up is dropped if it has not started, and undone if it was running.
+ * Background work waits as long as its writes take.
+ */
+@Service
+public class StorageShardRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageShardRouter.class);
+
+    @Autowired
+    private StorageCircuitBreaker storageCircuitBreaker;
+
+    @Value("${github.repository}")
+    private String defaultRepository;
+
+    @Value("${github.repositories:}")
+    private String configuredRepositories;
+
+    @Value("${app.storage.write-queue:16}")
+    private int writeQueue;
+
+    @Value("${app.storage.write-timeout-ms:30000}")
+    private long writeTimeoutMs;
+
+    private List<String> shards;
+
+    private final Map<String, ExecutorService> writers = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> requestWrites = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        shards = Arrays.stream(configuredRepositories.split(","))
+            .map(String::trim)
+            .filter(name -> !name.isEmpty())
+            .distinct()
+            .toList();
+        
+        if (shards.isEmpty()) {
+            shards = List.of(defaultRepository);
+        }
+        logger.info("Storage sharded across {} repositories: {}", shards.size(), shards);
+    }
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    /**
+     * Returns the repository a stored row lives in; rows written before sharding have no shard id.
+     */
+    public String resolve(String shard) {
+        return shard != null ? shard : defaultRepository;
+    }
+
+    public String shardFor(String key) {
+        String bestShard = null;
+        long bestScore = Long.MIN_VALUE;
+        
+        for (String shard : shards) {
+            long score = UUID.nameUUIDFromBytes((shard + ":" + key).getBytes(StandardCharsets.UTF_8))
+                .getMostSignificantBits();
+            if (bestShard == null || score > bestScore) {
+                bestShard = shard;
+                bestScore = score;
+            }
+        }
+        return bestShard;
+    }
+
+    /** Queues a write for the writer of {@code shard}; refused at once if too many are queued. */
+    public <T> Write<T> submitWrite(String shard, Callable<T> task) throws StorageUnavailableException {
+        // Writes for background work stay in the background partition of the bulkhead
+        boolean background = storageCircuitBreaker.isBackground();
+        Semaphore slots = background ? null : requestWrites.computeIfAbsent(shard, name -> new Semaphore(writeQueue));
+        if (slots != null && !slots.tryAcquire()) {
+            throw new StorageUnavailableException("Storage is busy, please try again shortly", 1);
+        }
+        
+        Write<T> write = new Write<>(background ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs));
+        try {
+            writers.computeIfAbsent(shard, name -> Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "storage-writer-" + name);
+                thread.setDaemon(true);
+                return thread;
+            })).execute(() -> {
+                try {
+                    write.run(background ? () -> storageCircuitBreaker.inBackground(task) : task);
+                } finally {
+                    if (slots != null) {
+                        slots.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (slots != null) {
+                slots.release();
+            }
+            throw new StorageUnavailableException("Storage is shutting down", 1);
+        }
+        return write;
+    }
+
+    /** Undoes a write that completed after its caller stopped waiting, e.g. deletes a stored file. */
+    @FunctionalInterface
+    public interface Undo<T> {
+        void undo(T result) throws Exception;
+    }
+
+    /** A queued write; {@link #get} waits for it. */
+    public static final class Write<T> {
+
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int DONE = 2;
+        private static final int ABANDONED = 3;
+
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        // System.nanoTime() by which the caller stops waiting; 0 for no limit
+        private final long deadline;
+        private volatile Undo<T> undo;
+
+        private Write(long deadline) {
+            this.deadline = deadline;
+        }
+
+        public Write<T> onAbandoned(Undo<T> undo) {
+            this.undo = undo;
+            return this;
+        }
+
+        /** Returns the result of the write, or throws what it threw. */
+        public T get() throws Exception {
+            try {
+                if (deadline == 0) {
+                    return result.get();
+                }
+                try {
+                    return result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (state.compareAndSet(QUEUED, ABANDONED) || state.compareAndSet(RUNNING, ABANDONED)) {
+                        throw new StorageUnavailableException("Storage is responding slowly, please try again shortly", 5);
+                    }
+                    // Finished just now
+                    return result.get();
+                }
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        private void run(Callable<T> task) {
+            if (!state.compareAndSet(QUEUED, RUNNING)) {
+                return;
+            }
+            T value;
+            try {
+                value = task.call();
+            } catch (Throwable e) {
+                state.compareAndSet(RUNNING, DONE);
+                result.completeExceptionally(e);
+                return;
+            }
+            if (state.compareAndSet(RUNNING, DONE)) {
+                result.complete(value);
+                return;
+            }
+            Undo<T> abandoned = undo;
+            if (abandoned != null && value != null) {
+                try {
+                    abandoned.undo(value);
+                } catch (Exception e) {
+                    logger.warn("Failed to undo a storage write its caller gave up on: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.values().forEach(ExecutorService::shutdown);
+    }
+}
@@ -0,0 +1,14 @@
+package com.pdfprinting.service;
+
+/**
+ * Thrown instead of calling remote storage while its circuit is open, or when all remote
+ * call slots stay busy for longer than the bulkhead wait.
+ */
+public class StorageUnavailableException extends ServiceUnavailableException {
+
+    private static final long serialVersionUID = 1L;
+
+    public StorageUnavailableException(String message, long retryAfterSeconds) {
+        super(message, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,127 @@
+package com.pdfprinting.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-student token buckets for upload requests and uploaded bytes. Buckets live in a
+ * ConcurrentHashMap, whose bins are locked independently, and each bucket pair is only
+ * synchronized on itself, so students never wait on each other.
+ */
+@Service
+public class UploadRateLimiter {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // A limit of 0 disables that bucket
+    @Value("${app.upload.rate.requests-per-minute:20}")
+    private long requestsPerMinute;
+
+    @Value("${app.upload.rate.bytes-per-hour:524288000}")
+    private long bytesPerHour;
+
+    private final Map<String, Buckets> buckets = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("upload.rate.buckets", buckets, Map::size)
+            .description("Students with an active upload rate bucket")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Takes one request and the given number of bytes from the student's buckets.
+     *
+     * @return 0 if allowed, otherwise the seconds until the request would be allowed
+     */
+    public long tryAcquire(String student, long bytes) {
+        Buckets studentBuckets = buckets.computeIfAbsent(student, key -> new Buckets(
+            new TokenBucket(requestsPerMinute, TimeUnit.MINUTES.toNanos(1)),
+            new TokenBucket(bytesPerHour, TimeUnit.HOURS.toNanos(1))));
+
+        long waitNanos = studentBuckets.tryAcquire(bytes, System.nanoTime());
+        meterRegistry.counter("upload.rate.decisions", "result", waitNanos == 0 ? "allowed" : "limited").increment();
+        return waitNanos == 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+    }
+
+    @Scheduled(fixedDelayString = "${app.upload.rate.evict-ms:300000}")
+    public void evictIdle() {
+        // A full bucket holds no state worth keeping
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> entry.getValue().isFull(now));
+    }
+
+    private static final class Buckets {
+        private final TokenBucket requests;
+        private final TokenBucket bytes;
+
+        Buckets(TokenBucket requests, TokenBucket bytes) {
+            this.requests = requests;
+            this.bytes = bytes;
+        }
+
+        // Both buckets are checked before either is charged, so a rejected request costs nothing
+        synchronized long tryAcquire(long amount, long now) {
+            long waitNanos = Math.max(requests.waitNanos(1, now), bytes.waitNanos(amount, now));
+            if (waitNanos == 0) {
+                requests.take(1);
+                bytes.take(amount);
+            }
+            return waitNanos;
+        }
+
+        synchronized boolean isFull(long now) {
+            return requests.isFull(now) && bytes.isFull(now);
+        }
+    }
+
+    private static final class TokenBucket {
+        private final long capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        TokenBucket(long capacity, long periodNanos) {
+            this.capacity = capacity;
+            this.tokensPerNano = (double) capacity / periodNanos;
+            this.tokens = capacity;
+        }
+
+        long waitNanos(long amount, long now) {
+            if (capacity <= 0) {
+                return 0;
+            }
+            refill(now);
+            // A single request larger than the bucket is let through once the bucket is full
+            double needed = Math.min(amount, capacity);
+            return tokens >= needed ? 0 : (long) Math.ceil((needed - tokens) / tokensPerNano);
+        }
+
+        void take(long amount) {
+            tokens -= amount;
+        }
+
+        boolean isFull(long now) {
+            if (capacity <= 0) {
+                return true;
+            }
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+}
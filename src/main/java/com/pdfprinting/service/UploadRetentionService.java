@@ -0,0 +1,157 @@
+package com.pdfprinting.service;
+
+import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.repository.PdfUploadRepository;
+import com.pdfprinting.repository.ScheduledLockRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Moves merged uploads older than {@code app.retention.processed-days} out of pdf_uploads
+ * into pdf_uploads_archive, removing their files from storage first. Uploads that were
+ * already purged through the admin cleanup only have their rows archived.
+ * <p>
+ * The schedule fires on every node, but only the node that takes the {@code retention} row of
+ * scheduled_locks runs it. The lock is held for at least {@code app.retention.min-lock-minutes},
+ * so a node whose clock is a little behind does not start a second run of the same day, and for
+ * at most {@code app.retention.max-lock-minutes}, after which a run whose node died is retried.
+ */
+@Service
+public class UploadRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadRetentionService.class);
+
+    @Autowired
+    private PdfUploadRepository pdfUploadRepository;
+
+    @Autowired
+    private ScheduledLockRepository scheduledLockRepository;
+
+    @Autowired
+    private GitHubStorageService gitHubStorageService;
+
+    @Autowired
+    private StorageShardRouter storageShardRouter;
+
+    @Autowired
+    private StorageCircuitBreaker storageCircuitBreaker;
+
+    @Autowired
+    private BatchService batchService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.retention.processed-days:60}")
+    private int processedDays;
+
+    @Value("${app.retention.page-size:500}")
+    private int pageSize;
+
+    @Value("${app.retention.min-lock-minutes:10}")
+    private long minLockMinutes;
+
+    @Value("${app.retention.max-lock-minutes:360}")
+    private long maxLockMinutes;
+
+    // Empty means process id and host name
+    @Value("${app.node-id:}")
+    private String nodeId;
+
+    @Scheduled(cron = "${app.retention.cron:0 0 3 * * *}")
+    public int archiveOldUploads() {
+        if (processedDays <= 0) {
+            return 0;
+        }
+        String node = nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+        LocalDateTime started = LocalDateTime.now();
+        if (scheduledLockRepository.claim("retention", node, started, started.plusMinutes(maxLockMinutes)) == 0) {
+            logger.debug("Retention skipped, another node is running it");
+            return 0;
+        }
+
+        LocalDateTime before = started.minusDays(processedDays);
+        int[] archived = new int[1];
+        try {
+            storageCircuitBreaker.inBackground(() -> {
+                for (String batch : batchService.getBatchNames()) {
+                    archived[0] += archive(batch, PdfUpload.Status.PROCESSED, before);
+                    archived[0] += archive(batch, PdfUpload.Status.DELETED, before);
+                }
+            });
+        } finally {
+            LocalDateTime minimum = started.plusMinutes(minLockMinutes);
+            LocalDateTime now = LocalDateTime.now();
+            scheduledLockRepository.release("retention", node, now.isAfter(minimum) ? now : minimum);
+        }
+
+        if (archived[0] > 0) {
+            logger.info("Archived {} uploads from before {}", archived[0], before);
+        }
+        return archived[0];
+    }
+
+    private int archive(String batch, PdfUpload.Status status, LocalDateTime before) {
+        int archived = 0;
+        while (true) {
+            // Served by the (batch, status, uploaded_at) index
+            List<PdfUpload> uploads = pdfUploadRepository.findByBatchAndStatusAndUploadedAtBeforeOrderByUploadedAtAsc(
+                batch, status, before, PageRequest.of(0, pageSize));
+            if (uploads.isEmpty()) {
+                return archived;
+            }
+
+            if (status == PdfUpload.Status.PROCESSED) {
+                try {
+                    deleteStoredFiles(uploads);
+                } catch (Exception e) {
+                    // Rows stay live so the files are retried on the next run
+                    logger.error("Failed to delete archived files of {}: {}", batch, e.getMessage());
+                    meterRegistry.counter("uploads.archived", "result", "failed").increment(uploads.size());
+                    return archived;
+                }
+            }
+
+            List<Long> ids = uploads.stream().map(PdfUpload::getId).collect(Collectors.toList());
+            transactionTemplate.executeWithoutResult(transaction -> {
+                pdfUploadRepository.copyToArchive(ids, LocalDateTime.now());
+                pdfUploadRepository.deleteAllByIdInBatch(ids);
+            });
+
+            archived += ids.size();
+            meterRegistry.counter("uploads.archived", "result", "success").increment(ids.size());
+        }
+    }
+
+    private void deleteStoredFiles(List<PdfUpload> uploads) throws Exception {
+        // One commit per chunk of paths in each shard, as the admin cleanup does. Paths already gone,
+        // e.g. when archiving the rows failed after a previous delete, are skipped by deleteFiles
+        Map<String, List<String>> pathsByShard = uploads.stream()
+            .collect(Collectors.groupingBy(
+                upload -> storageShardRouter.resolve(upload.getStorageShard()),
+                Collectors.mapping(PdfUpload::getGithubPath, Collectors.toList())
+            ));
+        for (Map.Entry<String, List<String>> entry : pathsByShard.entrySet()) {
+            storageShardRouter.submitWrite(entry.getKey(), () -> {
+                gitHubStorageService.deleteFiles(entry.getKey(), entry.getValue());
+                return null;
+            }).get();
+        }
+    }
+}
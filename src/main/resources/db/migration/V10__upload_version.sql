@@ -0,0 +1,3 @@
+-- Optimistic locking for pdf_uploads: every write bumps the version, so saving a copy of a row
+-- that someone else changed meanwhile fails instead of undoing their change.
+ALTER TABLE pdf_uploads ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,4 @@
+-- A merge job that found storage or memory unavailable goes back to the queue until not_before,
+-- waiting longer each time it is deferred, instead of failing.
+ALTER TABLE merge_jobs ADD COLUMN not_before TIMESTAMP;
+ALTER TABLE merge_jobs ADD COLUMN deferrals INTEGER DEFAULT 0 NOT NULL;
@@ -0,0 +1,12 @@
+-- Scheduled tasks that must run on one node only. The node that moves locked_until past now runs the
+-- task; the others see the lock held and skip that run. A node that dies mid-run holds it only until
+-- locked_until.
+
+CREATE TABLE scheduled_locks (
+    name          VARCHAR(64) PRIMARY KEY,
+    locked_until  TIMESTAMP NOT NULL,
+    locked_by     VARCHAR(255),
+    locked_at     TIMESTAMP
+);
+
+INSERT INTO scheduled_locks (name, locked_until) VALUES ('retention', TIMESTAMP '2000-01-01 00:00:00');
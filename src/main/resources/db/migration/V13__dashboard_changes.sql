@@ -0,0 +1,10 @@
+-- Dashboard event streams poll these instead of listening to changes in one node's memory, so an admin
+-- connected to any node sees uploads and merges on all of them. changed_at is set from the database
+-- clock by the statements that change counters or merge progress.
+ALTER TABLE batches ADD COLUMN changed_at TIMESTAMP;
+ALTER TABLE merge_jobs ADD COLUMN processed_files INTEGER;
+ALTER TABLE merge_jobs ADD COLUMN total_files INTEGER;
+ALTER TABLE merge_jobs ADD COLUMN changed_at TIMESTAMP;
+
+CREATE INDEX idx_batches_changed_at ON batches (changed_at);
+CREATE INDEX idx_merge_jobs_changed_at ON merge_jobs (changed_at);
@@ -0,0 +1,17 @@
+-- Storage rebalances run in the background on the node that started them; the row lets an admin poll their
+-- progress through any node. The scheduled lock keeps a second rebalance from starting on another node.
+
+CREATE TABLE storage_rebalances (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    status        VARCHAR(20) NOT NULL,
+    requested_by  VARCHAR(255) NOT NULL,
+    node          VARCHAR(255) NOT NULL,
+    started_at    TIMESTAMP NOT NULL,
+    finished_at   TIMESTAMP,
+    checked       INTEGER NOT NULL,
+    moved         INTEGER NOT NULL,
+    failed        INTEGER NOT NULL,
+    error         VARCHAR(1000)
+);
+
+INSERT INTO scheduled_locks (name, locked_until) VALUES ('rebalance', TIMESTAMP '2000-01-01 00:00:00');
@@ -0,0 +1,18 @@
+-- Resumable upload sessions, so any node can take the next chunk or the finalize. The bytes go to a spool
+-- file named after the id in app.upload.spool-dir, which the nodes share. finalizing_until is a lease that
+-- keeps two nodes from storing the same file when a client retries a slow finalize.
+
+CREATE TABLE upload_sessions (
+    id                VARCHAR(36) PRIMARY KEY,
+    owner_email       VARCHAR(255) NOT NULL,
+    filename          VARCHAR(255) NOT NULL,
+    size              BIGINT NOT NULL,
+    batch             VARCHAR(255) NOT NULL,
+    page_ranges       VARCHAR(200),
+    copies            INTEGER NOT NULL,
+    received          BIGINT NOT NULL,
+    last_activity     TIMESTAMP NOT NULL,
+    finalizing_until  TIMESTAMP
+);
+
+CREATE INDEX idx_upload_sessions_last_activity ON upload_sessions (last_activity);
@@ -0,0 +1,44 @@
+-- Tables as previously generated by Hibernate (ddl-auto), written to run on both H2 and PostgreSQL.
+
+CREATE TABLE users (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name               VARCHAR(100) NOT NULL,
+    email              VARCHAR(255) NOT NULL,
+    branch             VARCHAR(255) NOT NULL,
+    roll_number        VARCHAR(255) NOT NULL,
+    phone_number       VARCHAR(255) NOT NULL,
+    batch              VARCHAR(255) NOT NULL,
+    password           VARCHAR(255) NOT NULL,
+    role               VARCHAR(20),
+    email_verified     BOOLEAN NOT NULL,
+    verification_token VARCHAR(255),
+    token_expiry       TIMESTAMP,
+    created_at         TIMESTAMP,
+    CONSTRAINT uk_users_email UNIQUE (email),
+    CONSTRAINT uk_users_roll_number UNIQUE (roll_number)
+);
+
+CREATE TABLE pdf_uploads (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    file_name          VARCHAR(255) NOT NULL,
+    original_file_name VARCHAR(255) NOT NULL,
+    github_path        VARCHAR(255) NOT NULL,
+    blob_sha           VARCHAR(40),
+    storage_shard      VARCHAR(255),
+    batch              VARCHAR(255) NOT NULL,
+    file_size          BIGINT NOT NULL,
+    uploaded_at        TIMESTAMP NOT NULL,
+    user_id            BIGINT NOT NULL,
+    status             VARCHAR(20),
+    CONSTRAINT fk_pdf_uploads_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE stored_files (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    repository         VARCHAR(255) NOT NULL,
+    path               VARCHAR(255) NOT NULL,
+    sha                VARCHAR(40) NOT NULL,
+    size               BIGINT NOT NULL,
+    created_at         TIMESTAMP NOT NULL,
+    CONSTRAINT uk_stored_files_repository_path UNIQUE (repository, path)
+);
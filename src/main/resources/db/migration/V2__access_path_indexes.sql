@@ -0,0 +1,11 @@
+-- Indexes for the queries the application actually runs.
+-- users(email) and users(roll_number) are already covered by their unique constraints.
+
+-- Pending/processed queue of a batch in upload order (merge, admin batch view, cleanup)
+CREATE INDEX idx_pdf_uploads_batch_status_uploaded ON pdf_uploads (batch, status, uploaded_at);
+
+-- A student's uploads, newest first (student dashboard); also backs the user_id foreign key
+CREATE INDEX idx_pdf_uploads_user_uploaded ON pdf_uploads (user_id, uploaded_at DESC);
+
+-- Email verification link lookup
+CREATE INDEX idx_users_verification_token ON users (verification_token);
@@ -0,0 +1,18 @@
+-- Batches become rows with running totals of their pending queue.
+
+CREATE TABLE batches (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name               VARCHAR(255) NOT NULL,
+    pending_files      BIGINT NOT NULL DEFAULT 0,
+    pending_bytes      BIGINT NOT NULL DEFAULT 0,
+    pending_pages      BIGINT NOT NULL DEFAULT 0,
+    pending_students   BIGINT NOT NULL DEFAULT 0,
+    reconciled_at      TIMESTAMP,
+    CONSTRAINT uk_batches_name UNIQUE (name)
+);
+
+-- The batches that used to be hard-coded; counters are filled in by the first reconciliation
+INSERT INTO batches (name) VALUES ('Batch 1'), ('Batch 2'), ('Batch 3'), ('Batch 4'), ('Batch 5');
+
+-- Page count recorded at upload so page totals can be maintained without reopening files
+ALTER TABLE pdf_uploads ADD COLUMN page_count INTEGER NOT NULL DEFAULT 0;
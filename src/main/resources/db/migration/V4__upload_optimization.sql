@@ -0,0 +1,3 @@
+-- Per-file savings of the optional optimization stage
+ALTER TABLE pdf_uploads ADD COLUMN original_file_size BIGINT;
+ALTER TABLE pdf_uploads ADD COLUMN optimized_at TIMESTAMP;
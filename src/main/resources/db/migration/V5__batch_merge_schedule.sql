@@ -0,0 +1,2 @@
+-- Optional cron expression at which a batch is snapshotted and merged automatically
+ALTER TABLE batches ADD COLUMN merge_cron VARCHAR(120);
@@ -0,0 +1,19 @@
+-- Processed uploads past the retention age move here, keeping pdf_uploads down to live data.
+-- No foreign key to users, so archived history does not hold on to accounts.
+
+CREATE TABLE pdf_uploads_archive (
+    id                 BIGINT PRIMARY KEY,
+    user_id            BIGINT NOT NULL,
+    batch              VARCHAR(255) NOT NULL,
+    original_file_name VARCHAR(255) NOT NULL,
+    github_path        VARCHAR(255) NOT NULL,
+    storage_shard      VARCHAR(255),
+    file_size          BIGINT NOT NULL,
+    original_file_size BIGINT,
+    page_count         INTEGER NOT NULL,
+    uploaded_at        TIMESTAMP NOT NULL,
+    status             VARCHAR(20),
+    archived_at        TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_pdf_uploads_archive_batch_uploaded ON pdf_uploads_archive (batch, uploaded_at);
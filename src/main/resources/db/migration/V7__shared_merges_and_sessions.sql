@@ -0,0 +1,45 @@
+-- Latest merged PDF of each batch, stored in the blob store as one or more parts, so any node can serve it.
+
+CREATE TABLE merged_pdfs (
+    batch              VARCHAR(255) PRIMARY KEY,
+    storage_shard      VARCHAR(255) NOT NULL,
+    sha256             VARCHAR(64) NOT NULL,
+    file_size          BIGINT NOT NULL,
+    page_count         INTEGER NOT NULL,
+    created_at         TIMESTAMP NOT NULL
+);
+
+CREATE TABLE merged_pdf_parts (
+    batch              VARCHAR(255) NOT NULL,
+    part_index         INTEGER NOT NULL,
+    github_path        VARCHAR(255) NOT NULL,
+    blob_sha           VARCHAR(40) NOT NULL,
+    file_size          BIGINT NOT NULL,
+    CONSTRAINT pk_merged_pdf_parts PRIMARY KEY (batch, part_index),
+    CONSTRAINT fk_merged_pdf_parts_batch FOREIGN KEY (batch) REFERENCES merged_pdfs (batch) ON DELETE CASCADE
+);
+
+-- Spring Session JDBC schema (BYTEA is also accepted by H2)
+
+CREATE TABLE spring_session (
+    primary_id            CHAR(36) NOT NULL,
+    session_id            CHAR(36) NOT NULL,
+    creation_time         BIGINT NOT NULL,
+    last_access_time      BIGINT NOT NULL,
+    max_inactive_interval INTEGER NOT NULL,
+    expiry_time           BIGINT NOT NULL,
+    principal_name        VARCHAR(100),
+    CONSTRAINT spring_session_pk PRIMARY KEY (primary_id)
+);
+
+CREATE UNIQUE INDEX spring_session_ix1 ON spring_session (session_id);
+CREATE INDEX spring_session_ix2 ON spring_session (expiry_time);
+CREATE INDEX spring_session_ix3 ON spring_session (principal_name);
+
+CREATE TABLE spring_session_attributes (
+    session_primary_id CHAR(36) NOT NULL,
+    attribute_name     VARCHAR(200) NOT NULL,
+    attribute_bytes    BYTEA NOT NULL,
+    CONSTRAINT spring_session_attributes_pk PRIMARY KEY (session_primary_id, attribute_name),
+    CONSTRAINT spring_session_attributes_fk FOREIGN KEY (session_primary_id) REFERENCES spring_session (primary_id) ON DELETE CASCADE
+);
@@ -0,0 +1,25 @@
+-- Queue of batch merges. Worker threads on every node claim rows with FOR UPDATE SKIP LOCKED and hold
+-- them with a lease renewed by heartbeats; a job whose lease ran out is claimed again by another node.
+
+CREATE TABLE merge_jobs (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    batch         VARCHAR(255) NOT NULL,
+    cutoff        TIMESTAMP NOT NULL,
+    requested_by  VARCHAR(255) NOT NULL,
+    dedupe_key    VARCHAR(255),
+    status        VARCHAR(20) NOT NULL,
+    attempts      INTEGER NOT NULL,
+    claimed_by    VARCHAR(255),
+    lease_until   TIMESTAMP,
+    heartbeat_at  TIMESTAMP,
+    created_at    TIMESTAMP NOT NULL,
+    started_at    TIMESTAMP,
+    finished_at   TIMESTAMP,
+    file_count    INTEGER,
+    page_count    INTEGER,
+    error         VARCHAR(1000),
+    CONSTRAINT uk_merge_jobs_dedupe_key UNIQUE (dedupe_key)
+);
+
+CREATE INDEX idx_merge_jobs_status_created ON merge_jobs (status, created_at);
+CREATE INDEX idx_merge_jobs_batch_created ON merge_jobs (batch, created_at);
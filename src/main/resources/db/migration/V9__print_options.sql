@@ -0,0 +1,7 @@
+-- Page selection and copy count per upload, applied when the batch is merged. printed_pages is what
+-- the upload adds to the merged PDF and feeds the pending page counters of the batch.
+ALTER TABLE pdf_uploads ADD COLUMN page_ranges VARCHAR(200);
+ALTER TABLE pdf_uploads ADD COLUMN copies INTEGER DEFAULT 1 NOT NULL;
+ALTER TABLE pdf_uploads ADD COLUMN printed_pages INTEGER;
+UPDATE pdf_uploads SET printed_pages = page_count;
+ALTER TABLE pdf_uploads ALTER COLUMN printed_pages SET NOT NULL;